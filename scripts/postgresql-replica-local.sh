@@ -0,0 +1,15 @@
+#/bin/bash
+# Streaming replica of the database started by postgresql-local.sh, listening on port 5433.
+# Run the application with DB_REPLICAS=jdbc:postgresql://localhost:5433/careless
+docker exec careless_db bash -c \
+  'grep -q "^host replication" "$PGDATA/pg_hba.conf" || echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"'
+docker exec careless_db psql -U careless -c 'SELECT pg_reload_conf()'
+docker run --rm \
+  --name careless_db_replica \
+  --add-host=host.docker.internal:host-gateway \
+   -p 5433:5432 \
+   -e PGPASSWORD=${DB_PASSWORD} \
+   postgres:18 \
+   bash -c 'mkdir -p "$PGDATA" && chown postgres "$PGDATA" && chmod 700 "$PGDATA" \
+     && gosu postgres pg_basebackup -h host.docker.internal -p 5432 -U careless -D "$PGDATA" -R -X stream \
+     && exec docker-entrypoint.sh postgres'
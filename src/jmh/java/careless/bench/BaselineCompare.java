@@ -0,0 +1,98 @@
+package careless.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result file against a baseline run.
+ * <p>
+ * Prints the score and normalized allocation ({@code gc.alloc.rate.norm}) change of every
+ * benchmark present in both files, and exits with status 1 if any score got worse by more than
+ * the threshold. Does nothing if no baseline is given.
+ * <p>
+ * Usage: {@code BaselineCompare <result.json> [baseline.json] [threshold, e.g. 0.10]}
+ *
+ * @author jay
+ */
+public final class BaselineCompare {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+    private BaselineCompare() {
+    }
+
+    /**
+     * One benchmark score.
+     *
+     * @param score       primary score
+     * @param unit        score unit
+     * @param higherBetter true for throughput modes
+     * @param allocNorm   bytes allocated per operation, or NaN if the GC profiler was off
+     */
+    private record Score(double score, String unit, boolean higherBetter, double allocNorm) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args[1].isBlank()) {
+            System.out.println("No JMH baseline given (-Djmh.baseline=<file>), skipping comparison");
+            return;
+        }
+        double threshold = args.length > 2 && !args[2].isBlank() ? Double.parseDouble(args[2]) : 0.10;
+        Map<String, Score> current = read(new File(args[0]));
+        Map<String, Score> baseline = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s %12s%n", "Benchmark", "Baseline", "Current", "Change", "Alloc B/op");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            Score after = entry.getValue();
+            double change = (after.score() - before.score()) / before.score();
+            boolean regressed = after.higherBetter() ? change < -threshold : change > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %12s%s%n", entry.getKey(), before.score(), after.score(),
+                    change * 100, allocChange(before, after), regressed ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d regression(s) beyond %.0f%%%n", regressions, threshold * 100);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static String allocChange(Score before, Score after) {
+        if (Double.isNaN(before.allocNorm()) || Double.isNaN(after.allocNorm())) {
+            return "-";
+        }
+        return String.format("%.0f -> %.0f", before.allocNorm(), after.allocNorm());
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            run.path("params").fields().forEachRemaining(param ->
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+
+            JsonNode primary = run.path("primaryMetric");
+            String mode = run.path("mode").asText();
+            JsonNode alloc = null;
+            for (var metric : (Iterable<Map.Entry<String, JsonNode>>) () -> run.path("secondaryMetrics").fields()) {
+                if (metric.getKey().endsWith(ALLOC_NORM)) {
+                    alloc = metric.getValue();
+                }
+            }
+            scores.put(key.toString(), new Score(primary.path("score").asDouble(), primary.path("scoreUnit").asText(),
+                    mode.equals("thrpt"), alloc != null ? alloc.path("score").asDouble() : Double.NaN));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,101 @@
+package careless.clinic.service.data;
+
+import careless.clinic.model.TextEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DataService.TextEntryRowMapper} over an in-memory row, isolating mapping cost from the driver.
+ * <p>
+ * {@code firstRow} uses a fresh mapper (as each query does), which includes the one-off metadata
+ * lookup; {@code nextRow} reuses a mapper that has already seen a row.
+ *
+ * @author jay
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private ResultSet row;
+    private DataService.TextEntryRowMapper warmMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("id", 42L);
+        values.put("title", "error");
+        values.put("content", "x".repeat(2000));
+        values.put("created_at", now);
+        values.put("updated_at", now);
+        values.put("jwt_verified", Boolean.TRUE);
+        values.put("jwt_kid", "JAY_PUBLIC_KEY");
+        values.put("jwt_key_set", "0123456789abcdef");
+        values.put("jwt_expires_at", Timestamp.from(Instant.now().plusSeconds(3600)));
+        row = resultSet(values);
+
+        warmMapper = new DataService.TextEntryRowMapper();
+        warmMapper.mapRow(row, 0);
+    }
+
+    @Benchmark
+    public TextEntry firstRow() throws SQLException {
+        return new DataService.TextEntryRowMapper().mapRow(row, 0);
+    }
+
+    @Benchmark
+    public TextEntry nextRow() throws SQLException {
+        return warmMapper.mapRow(row, 1);
+    }
+
+    /**
+     * Builds a single-row result set backed by a map of column values.
+     */
+    private static ResultSet resultSet(Map<String, Object> values) {
+        List<String> columns = List.copyOf(values.keySet());
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                RowMapperBenchmark.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> columns.size();
+                    case "getColumnLabel", "getColumnName" -> columns.get((Integer) args[0] - 1);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        return (ResultSet) Proxy.newProxyInstance(
+                RowMapperBenchmark.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getMetaData" -> metaData;
+                    case "getLong" -> values.get((String) args[0]);
+                    case "getString" -> (String) values.get((String) args[0]);
+                    case "getTimestamp" -> values.get((String) args[0]);
+                    case "getObject" -> values.get((String) args[0]);
+                    case "wasNull" -> false;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
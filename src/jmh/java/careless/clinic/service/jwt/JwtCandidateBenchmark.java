@@ -0,0 +1,51 @@
+package careless.clinic.service.jwt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JWT shape check ({@link JwtVerificationService#jwtCandidate(String)}) run on every page-two
+ * submission and re-verification batch.
+ *
+ * @author jay
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtCandidateBenchmark {
+
+    /** token: compact JWS; text: short form input; payload: 12 KB injection-style payload */
+    @Param({"token", "text", "payload"})
+    public String input;
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+        content = switch (input) {
+            case "token" -> "eyJhbGciOiJFUzI1NiIsInR5cCI6IkpXVCJ9.eyJzdWIiOiJiZW5jaG1hcmsifQ."
+                    + "MEUCIQDx7VdVfqy8gyvCC4FP1f2HUGUDEbyFI5WHCJOWtw4sRgIgMh9WqZ5PyDbW8Iq-gNmE6yj9h1W0fLV0sC3qHkYfZ9s";
+            case "text" -> "Patient reports mild headache since Tuesday";
+            default -> "' OR 1=1; -- ".repeat(12032 / 13);
+        };
+    }
+
+    @Benchmark
+    public String jwtCandidate() {
+        return JwtVerificationService.jwtCandidate(content);
+    }
+}
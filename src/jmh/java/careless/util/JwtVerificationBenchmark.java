@@ -0,0 +1,121 @@
+package careless.util;
+
+import careless.clinic.CarelessClinicApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Provider;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Tools#validateJwtSignature(String)} for valid and tampered tokens on both supported curves.
+ * <p>
+ * Keys are generated per trial and installed as the active {@link JwtKeyRing}. With
+ * {@code withKid=false} the ring has to try every key on the token's curve.
+ *
+ * @author jay
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    @Param({"P256", "SECP256K1"})
+    public String curve;
+
+    @Param({"true", "false"})
+    public boolean withKid;
+
+    private String validToken;
+    private String invalidToken;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Provider bouncyCastle = CarelessClinicApplication.getBouncyCastleProvider();
+        KeyPair p256 = generate("secp256r1", null);
+        KeyPair secp256k1 = generate("secp256k1", bouncyCastle);
+
+        // Decoy keys first, so kid-less lookups do not hit the right key immediately
+        Map<String, String> pems = new LinkedHashMap<>();
+        pems.put("decoy-p256", pem(generate("secp256r1", null)));
+        pems.put("decoy-k1", pem(generate("secp256k1", bouncyCastle)));
+        pems.put("bench-p256", pem(p256));
+        pems.put("bench-k1", pem(secp256k1));
+        Tools.setKeyRing(JwtKeyRing.fromPem(pems));
+
+        boolean k1 = curve.equals("SECP256K1");
+        validToken = sign(k1 ? secp256k1 : p256, k1 ? "ES256K" : "ES256", k1 ? "bench-k1" : "bench-p256",
+                k1 ? "SHA256withPLAIN-ECDSA" : "SHA256withECDSAinP1363Format", k1 ? bouncyCastle : null);
+
+        // Flip one character at the start of the signature: same length, wrong value
+        int signatureStart = validToken.lastIndexOf('.') + 1;
+        char flipped = validToken.charAt(signatureStart) == 'A' ? 'B' : 'A';
+        invalidToken = validToken.substring(0, signatureStart) + flipped + validToken.substring(signatureStart + 1);
+
+        if (!Tools.validateJwtSignature(validToken) || Tools.validateJwtSignature(invalidToken)) {
+            throw new IllegalStateException("Benchmark tokens do not verify as expected");
+        }
+    }
+
+    @Benchmark
+    public boolean valid() {
+        return Tools.validateJwtSignature(validToken);
+    }
+
+    @Benchmark
+    public boolean invalidSignature() {
+        return Tools.validateJwtSignature(invalidToken);
+    }
+
+    private String sign(KeyPair keyPair, String alg, String kid, String signatureAlgorithm, Provider provider) throws Exception {
+        String header = withKid
+                ? "{\"alg\":\"" + alg + "\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}"
+                : "{\"alg\":\"" + alg + "\",\"typ\":\"JWT\"}";
+        String claims = "{\"sub\":\"benchmark\",\"iat\":1700000000}";
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String signingInput = encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+
+        Signature signer = provider != null
+                ? Signature.getInstance(signatureAlgorithm, provider)
+                : Signature.getInstance(signatureAlgorithm);
+        signer.initSign(keyPair.getPrivate());
+        signer.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + encoder.encodeToString(signer.sign());
+    }
+
+    private static KeyPair generate(String curveName, Provider provider) throws Exception {
+        KeyPairGenerator generator = provider != null
+                ? KeyPairGenerator.getInstance("EC", provider)
+                : KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(curveName));
+        return generator.generateKeyPair();
+    }
+
+    private static String pem(KeyPair keyPair) {
+        return "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getMimeEncoder().encodeToString(keyPair.getPublic().getEncoded())
+                + "\n-----END PUBLIC KEY-----\n";
+    }
+}
@@ -0,0 +1,75 @@
+package careless.util;
+
+import careless.clinic.CarelessClinicApplication;
+import org.bouncycastle.jce.interfaces.ECPublicKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Public key loading: the {@link ES256KKeyLoader} variants for the secp256k1 key, and building
+ * the whole {@link JwtKeyRing} from PEM.
+ *
+ * @author jay
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyLoadingBenchmark {
+
+    private final ES256KKeyLoader loader = new ES256KKeyLoader();
+    private byte[] spki;
+    private byte[] uncompressedPoint;
+    private Map<String, String> pems;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        CarelessClinicApplication.getBouncyCastleProvider();
+        spki = Base64.getDecoder().decode(Tools.PUBLIC_KEY
+                .replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", "")
+                .replaceAll("\\s", ""));
+        uncompressedPoint = ((ECPublicKey) loader.loadPublicKeyFromSPKIBouncy(spki)).getQ().getEncoded(false);
+
+        pems = new LinkedHashMap<>();
+        pems.put("PUBLIC_KEY", Tools.PUBLIC_KEY);
+        pems.put("JAY_PUBLIC_KEY", Tools.JAY_PUBLIC_KEY);
+    }
+
+    @Benchmark
+    public PublicKey spkiBouncy() throws Exception {
+        return loader.loadPublicKeyFromSPKIBouncy(spki);
+    }
+
+    @Benchmark
+    public PublicKey spki() throws Exception {
+        return loader.loadPublicKeyFromSPKI(spki);
+    }
+
+    @Benchmark
+    public PublicKey uncompressedPoint() throws Exception {
+        return loader.loadES256KPublicKey(uncompressedPoint);
+    }
+
+    @Benchmark
+    public JwtKeyRing keyRingFromPem() {
+        return JwtKeyRing.fromPem(pems);
+    }
+}
@@ -0,0 +1,35 @@
+package careless.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Tools#now()}, used for every submitted entry, against a plain {@link LocalDateTime#now()} baseline.
+ *
+ * @author jay
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampBenchmark {
+
+    @Benchmark
+    public String toolsNow() {
+        return Tools.now();
+    }
+
+    @Benchmark
+    public LocalDateTime baselineLocalDateTimeNow() {
+        return LocalDateTime.now();
+    }
+}
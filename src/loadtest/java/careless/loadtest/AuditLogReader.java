@@ -0,0 +1,93 @@
+package careless.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Reads ModSecurity JSON audit logs (one record per line) into replayable requests.
+ * <p>
+ * Understands the ModSecurity v3 layout ({@code transaction.request.{method,uri,headers,body}})
+ * and a flat {@code {method, uri, headers, body}} object for hand-made mixes. Lines that are not
+ * JSON objects or carry no request are skipped.
+ *
+ * @author jay
+ */
+final class AuditLogReader {
+
+    /** Headers the JDK HTTP client sets itself and refuses to accept */
+    private static final Set<String> RESTRICTED = Set.of(
+            "host", "connection", "content-length", "expect", "upgrade", "transfer-encoding", "keep-alive", "te");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private AuditLogReader() {
+    }
+
+    /**
+     * Reads all requests from an audit log.
+     *
+     * @param file   audit log, JSON lines
+     * @param filter keeps requests whose endpoint matches
+     * @return requests in log order
+     * @throws IOException if the file cannot be read
+     */
+    static List<ReplayRequest> read(Path file, Predicate<ReplayRequest> filter) throws IOException {
+        List<ReplayRequest> requests = new ArrayList<>();
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                ReplayRequest request = parse(line);
+                if (request == null) {
+                    skipped++;
+                } else if (filter.test(request)) {
+                    requests.add(request);
+                }
+            }
+        }
+        System.out.printf("Read %d requests from %s (%d records skipped)%n", requests.size(), file, skipped);
+        return requests;
+    }
+
+    private static ReplayRequest parse(String line) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(line);
+        } catch (IOException e) {
+            return null;
+        }
+        if (root == null || !root.isObject()) {
+            return null;
+        }
+        JsonNode request = root.has("transaction") ? root.path("transaction").path("request") : root;
+        String method = request.path("method").asText(null);
+        String uri = request.path("uri").asText(null);
+        if (method == null || uri == null || !uri.startsWith("/")) {
+            return null;
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        request.path("headers").fields().forEachRemaining(header -> {
+            if (!RESTRICTED.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                headers.put(header.getKey(), header.getValue().asText());
+            }
+        });
+        return new ReplayRequest(method.toUpperCase(Locale.ROOT), uri, headers, request.path("body").asText(""));
+    }
+}
@@ -0,0 +1,78 @@
+package careless.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcome counts for one endpoint.
+ * <p>
+ * Response time runs from the <em>intended</em> start of a request (its slot in the arrival
+ * schedule) to completion, so time spent waiting behind a slow server is counted instead of
+ * hidden (coordinated omission). Service time runs from the actual send and is kept alongside
+ * for comparison. Both are recorded in microseconds.
+ *
+ * @author jay
+ */
+final class EndpointStats {
+
+    private final Recorder intervalRecorder = new Recorder(3);
+    private final Histogram response = new ConcurrentHistogram(3);
+    private final Histogram service = new ConcurrentHistogram(3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Records one completed request. Safe to call from any thread.
+     *
+     * @param intendedNanos scheduled start
+     * @param sentNanos     actual send
+     * @param doneNanos     completion
+     * @param outcome       status code, or exception name if there was no response
+     * @param error         true for 4xx/5xx and exceptions
+     * @param measured      false for requests scheduled during warmup, which only show in the live report
+     */
+    void record(long intendedNanos, long sentNanos, long doneNanos, String outcome, boolean error, boolean measured) {
+        long responseMicros = Math.max(0, (doneNanos - intendedNanos) / 1_000);
+        intervalRecorder.recordValue(responseMicros);
+        if (!measured) {
+            return;
+        }
+        response.recordValue(responseMicros);
+        service.recordValue(Math.max(0, (doneNanos - sentNanos) / 1_000));
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @return response times recorded since the previous call, for the live report
+     */
+    Histogram interval() {
+        return intervalRecorder.getIntervalHistogram();
+    }
+
+    Histogram response() {
+        return response;
+    }
+
+    Histogram service() {
+        return service;
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    Map<String, Long> outcomes() {
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((key, count) -> counts.put(key, count.sum()));
+        return counts;
+    }
+}
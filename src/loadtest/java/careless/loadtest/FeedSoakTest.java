@@ -0,0 +1,153 @@
+package careless.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Soak test for the live entry feed: holds many idle feed connections open and measures how
+ * long a submission takes to reach all of them.
+ * <p>
+ * Each subscriber is a plain socket read on its own virtual thread. Once all are connected,
+ * every round submits one entry carrying a unique marker and records, per subscriber, the time
+ * from the submit until the frame with the marker arrived.
+ * <p>
+ * The client needs a file descriptor per subscriber ({@code ulimit -n}) and, above ~28000
+ * subscribers, more ephemeral ports or several client addresses. The server needs
+ * {@code clinic.tomcat.max-connections} above the subscriber count (e.g. the
+ * {@code high-concurrency} connector profile).
+ * <p>
+ * Usage: {@code FeedSoakTest --target=http://localhost:8080 --subscribers=20000 --rounds=5
+ * [--feed=/page-one/feed] [--submit=/page-one/submit] [--connect-rate=2000] [--interval=5s]}
+ *
+ * @author jay
+ */
+public final class FeedSoakTest {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+    private FeedSoakTest() {
+    }
+
+    /** Marker of the current round and when it was submitted */
+    private record Round(String marker, long submittedNanos) {
+    }
+
+    private static volatile Round round;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = ReplayLoadTest.parse(args);
+        URI target = URI.create(options.getOrDefault("target", "http://localhost:8080"));
+        int subscribers = Integer.parseInt(options.getOrDefault("subscribers", "10000"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "5"));
+        int connectRate = Integer.parseInt(options.getOrDefault("connect-rate", "2000"));
+        Duration interval = ReplayLoadTest.duration(options.getOrDefault("interval", "5s"));
+        String feedPath = options.getOrDefault("feed", "/page-one/feed");
+        String submitPath = options.getOrDefault("submit", "/page-one/submit");
+
+        AtomicInteger connected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        Histogram delivery = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.out.printf("Opening %d feed connections to %s%s%n", subscribers, target, feedPath);
+            long pauseNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, connectRate);
+            for (int i = 0; i < subscribers; i++) {
+                executor.execute(() -> subscribe(target, feedPath, connected, failed, delivered, delivery));
+                TimeUnit.NANOSECONDS.sleep(pauseNanos);
+            }
+            awaitConnections(connected, failed, subscribers);
+            System.out.printf("%d connected, %d failed%n", connected.get(), failed.get());
+
+            HttpClient client = HttpClient.newBuilder().executor(executor)
+                    .followRedirects(HttpClient.Redirect.NEVER).build();
+            for (int r = 1; r <= rounds; r++) {
+                delivered.set(0);
+                String marker = "feedsoak" + System.nanoTime();
+                round = new Round(marker, System.nanoTime());
+                HttpResponse<Void> response = client.send(HttpRequest.newBuilder(target.resolve(submitPath))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString("text=" + URLEncoder.encode(marker, StandardCharsets.UTF_8)))
+                        .build(), HttpResponse.BodyHandlers.discarding());
+                Thread.sleep(interval.toMillis());
+                System.out.printf("Round %d: submit %d, delivered to %d of %d open subscribers%n",
+                        r, response.statusCode(), delivered.get(), connected.get());
+            }
+
+            System.out.println("Delivery latency (submit to frame) across rounds, ms:");
+            for (double percentile : PERCENTILES) {
+                System.out.printf("  p%-6s %10.2f%n", percentile,
+                        delivery.getValueAtPercentile(percentile) / 1_000_000.0);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private static void subscribe(URI target, String feedPath, AtomicInteger connected, AtomicInteger failed,
+                                  AtomicInteger delivered, Histogram delivery) {
+        int port = target.getPort() > 0 ? target.getPort() : 80;
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(target.getHost(), port), 10_000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + feedPath + " HTTP/1.1\r\nHost: " + target.getHost() + ":" + port
+                    + "\r\nAccept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String status = in.readLine();
+            if (status == null || !status.contains(" 200")) {
+                failed.incrementAndGet();
+                return;
+            }
+            connected.incrementAndGet();
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    Round current = round;
+                    // Only data lines carry the marker; chunk-size lines of the chunked body are skipped
+                    if (current != null && line.contains(current.marker())) {
+                        delivery.recordValue(Math.min(System.nanoTime() - current.submittedNanos(),
+                                delivery.getHighestTrackableValue()));
+                        delivered.incrementAndGet();
+                    }
+                }
+            } finally {
+                connected.decrementAndGet();
+            }
+        } catch (Exception e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    private static void awaitConnections(AtomicInteger connected, AtomicInteger failed, int subscribers)
+            throws InterruptedException {
+        List<Integer> progress = new ArrayList<>();
+        while (connected.get() + failed.get() < subscribers) {
+            progress.add(connected.get());
+            // Stop waiting once no new connection succeeded for ten seconds
+            if (progress.size() > 10 && progress.get(progress.size() - 11).equals(connected.get())) {
+                return;
+            }
+            Thread.sleep(1000);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package careless.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator that replays ModSecurity audit logs against a running instance.
+ * <p>
+ * Requests are started on a fixed arrival schedule ({@code rate} per second) regardless of how
+ * fast the server answers; at most {@code concurrency} are in flight. When the cap is reached the
+ * schedule falls behind, but every request is still timed from its scheduled slot, so the
+ * reported percentiles are free of coordinated omission. Results from the warmup period are
+ * discarded.
+ * <p>
+ * Modes:
+ * <ul>
+ *     <li>{@code replay} - recorded requests in log order</li>
+ *     <li>{@code mix} - recorded requests sampled at random, optionally reweighted per path</li>
+ *     <li>{@code synthetic} - built-in submission/page/suggest mix; the default when no log is given</li>
+ * </ul>
+ * Usage: {@code ReplayLoadTest --target=http://localhost:8080 --log=audit.log --mode=mix --rate=200
+ * --concurrency=256 --duration=60s --warmup=10s [--filter=/page-one] [--weights=/page-one/submit=8,/page-one=2]
+ * [--cookie=JSESSIONID=...] [--report-dir=target/loadtest]}
+ *
+ * @author jay
+ */
+public final class ReplayLoadTest {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private ReplayLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        URI target = URI.create(options.getOrDefault("target", "http://localhost:8080"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "256"));
+        Duration duration = duration(options.getOrDefault("duration", "60s"));
+        Duration warmup = duration(options.getOrDefault("warmup", "10s"));
+        Duration timeout = duration(options.getOrDefault("timeout", "10s"));
+        Duration reportInterval = duration(options.getOrDefault("report-interval", "5s"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        String cookie = options.get("cookie");
+
+        RequestSource source = source(options, seed);
+        System.out.printf("Target %s - rate %.1f/s, concurrency %d, warmup %s, duration %s%n",
+                target, rate, concurrency, warmup, duration);
+
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicLong maxLagNanos = new AtomicLong();
+        AtomicLong sent = new AtomicLong();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(executor)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(timeout)
+                    .build();
+
+            long start = System.nanoTime();
+            long warmupEnd = start + warmup.toNanos();
+            long end = warmupEnd + duration.toNanos();
+            Reporter reporter = new Reporter(stats, start, warmupEnd, reportInterval);
+            reporter.start();
+
+            for (long i = 0; ; i++) {
+                long intended = start + (long) (i * 1_000_000_000.0 / rate);
+                if (intended >= end) {
+                    break;
+                }
+                LockSupport.parkNanos(intended - System.nanoTime());
+                inFlight.acquire();
+                long sendTime = System.nanoTime();
+                maxLagNanos.accumulateAndGet(sendTime - intended, Math::max);
+
+                ReplayRequest request = source.next(i);
+                EndpointStats endpoint = stats.computeIfAbsent(request.endpoint(), key -> new EndpointStats());
+                sent.incrementAndGet();
+                client.sendAsync(build(target, request, cookie, timeout), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, failure) -> {
+                            long done = System.nanoTime();
+                            if (failure != null) {
+                                Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                                endpoint.record(intended, sendTime, done, cause.getClass().getSimpleName(), true,
+                                        intended >= warmupEnd);
+                            } else {
+                                endpoint.record(intended, sendTime, done, Integer.toString(response.statusCode()),
+                                        response.statusCode() >= 400, intended >= warmupEnd);
+                            }
+                            inFlight.release();
+                        });
+            }
+
+            if (!inFlight.tryAcquire(concurrency, timeout.toMillis() + 1_000, TimeUnit.MILLISECONDS)) {
+                System.out.printf("%d requests still in flight after %s, not waiting for them%n",
+                        concurrency - inFlight.availablePermits(), timeout);
+            }
+            reporter.stop();
+            System.out.printf("%nSent %d requests, max dispatch lag %.1f ms%n", sent.get(), maxLagNanos.get() / 1e6);
+            summary(stats, duration);
+            String reportDir = options.get("report-dir");
+            if (reportDir != null) {
+                writeDistributions(stats, Path.of(reportDir));
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private static RequestSource source(Map<String, String> options, long seed) throws IOException {
+        String log = options.get("log");
+        String mode = options.getOrDefault("mode", log == null ? "synthetic" : "replay");
+        if (mode.equals("synthetic")) {
+            return RequestSource.synthetic(seed);
+        }
+        if (log == null) {
+            throw new IllegalArgumentException("--log is required for mode " + mode);
+        }
+        String filter = options.getOrDefault("filter", "/");
+        List<ReplayRequest> requests = AuditLogReader.read(Path.of(log), request -> request.uri().startsWith(filter));
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("No requests in " + log + " match " + filter);
+        }
+        return switch (mode) {
+            case "replay" -> RequestSource.replay(requests);
+            case "mix" -> RequestSource.mix(requests, weights(options.getOrDefault("weights", "")), seed);
+            default -> throw new IllegalArgumentException("Unknown mode " + mode + " (replay, mix, synthetic)");
+        };
+    }
+
+    private static HttpRequest build(URI target, ReplayRequest request, String cookie, Duration timeout) {
+        HttpRequest.BodyPublisher body = request.body().isEmpty()
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(request.body());
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target.resolve(request.uri()))
+                .method(request.method(), body)
+                .timeout(timeout);
+        request.headers().forEach((name, value) -> {
+            if (!name.equalsIgnoreCase("cookie")) {
+                builder.header(name, value);
+            }
+        });
+        if (cookie != null) {
+            builder.header("Cookie", cookie);
+        }
+        return builder.build();
+    }
+
+    private static void summary(Map<String, EndpointStats> stats, Duration duration) {
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("%-40s %9s %8s %9s %9s %9s %9s %9s %9s %9s %11s%n", "Endpoint", "Count", "Errors", "Req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "p99.99 ms", "Max ms", "svc p99 ms");
+        Histogram all = new Histogram(3);
+        long errors = 0;
+        for (Map.Entry<String, EndpointStats> entry : new TreeMap<>(stats).entrySet()) {
+            EndpointStats endpoint = entry.getValue();
+            all.add(endpoint.response());
+            errors += endpoint.errors();
+            row(entry.getKey(), endpoint.response(), endpoint.errors(), seconds, endpoint.service());
+        }
+        row("TOTAL", all, errors, seconds, null);
+
+        System.out.println();
+        System.out.println("Outcomes per endpoint:");
+        new TreeMap<>(stats).forEach((name, endpoint) -> System.out.printf("  %-40s %s%n", name, endpoint.outcomes()));
+    }
+
+    private static void row(String name, Histogram response, long errors, double seconds, Histogram service) {
+        List<Object> values = new ArrayList<>();
+        values.add(name);
+        values.add(response.getTotalCount());
+        values.add(errors);
+        values.add(response.getTotalCount() / seconds);
+        for (double percentile : PERCENTILES) {
+            values.add(response.getValueAtPercentile(percentile) / 1000.0);
+        }
+        values.add(response.getMaxValue() / 1000.0);
+        values.add(service != null ? service.getValueAtPercentile(99) / 1000.0 : Double.NaN);
+        System.out.printf("%-40s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %11.2f%n", values.toArray());
+    }
+
+    /**
+     * Writes one HdrHistogram percentile distribution (.hgrm, in milliseconds) per endpoint, for
+     * plotting or comparing runs.
+     */
+    private static void writeDistributions(Map<String, EndpointStats> stats, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            String file = entry.getKey().replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm";
+            try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(file)))) {
+                entry.getValue().response().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.println("Wrote latency distributions to " + dir);
+    }
+
+    /**
+     * Prints interval throughput and latency while the test runs.
+     */
+    private static final class Reporter {
+
+        private final Map<String, EndpointStats> stats;
+        private final long start;
+        private final long warmupEnd;
+        private final Duration interval;
+        private Thread thread;
+        private volatile boolean running;
+
+        Reporter(Map<String, EndpointStats> stats, long start, long warmupEnd, Duration interval) {
+            this.stats = stats;
+            this.start = start;
+            this.warmupEnd = warmupEnd;
+            this.interval = interval;
+        }
+
+        void start() {
+            running = true;
+            thread = Thread.ofPlatform().name("loadtest-reporter").daemon(true).start(this::run);
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+
+        private void run() {
+            long last = System.nanoTime();
+            while (running) {
+                LockSupport.parkNanos(interval.toNanos());
+                long now = System.nanoTime();
+                Histogram histogram = new Histogram(3);
+                stats.values().forEach(endpoint -> histogram.add(endpoint.interval()));
+                System.out.printf("[%6.1fs]%s %8.1f req/s  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms%n",
+                        (now - start) / 1e9, now < warmupEnd ? " warmup" : "",
+                        histogram.getTotalCount() / ((now - last) / 1e9),
+                        histogram.getValueAtPercentile(50) / 1000.0,
+                        histogram.getValueAtPercentile(99) / 1000.0,
+                        histogram.getMaxValue() / 1000.0);
+                last = now;
+            }
+        }
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+            String value = eq < 0 ? "true" : arg.substring(eq + 1);
+            // Blank values come from unset Maven properties
+            if (!value.isBlank()) {
+                options.put(name, value);
+            }
+        }
+        return options;
+    }
+
+    private static Map<String, Double> weights(String spec) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (String pair : spec.split(",")) {
+            int eq = pair.lastIndexOf('=');
+            if (eq > 0) {
+                weights.put(pair.substring(0, eq).trim(), Double.parseDouble(pair.substring(eq + 1).trim()));
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Parses {@code 500ms}, {@code 30s}, {@code 5m} or an ISO-8601 duration.
+     */
+    static Duration duration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> Duration.ofSeconds(Long.parseLong(value));
+        };
+    }
+}
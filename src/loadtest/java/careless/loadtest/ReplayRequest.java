@@ -0,0 +1,23 @@
+package careless.loadtest;
+
+import java.util.Map;
+
+/**
+ * One HTTP request recovered from an audit log record.
+ *
+ * @param method  HTTP method
+ * @param uri     path and query, relative to the target
+ * @param headers headers to send (restricted headers already removed)
+ * @param body    request body, empty if none
+ * @author jay
+ */
+record ReplayRequest(String method, String uri, Map<String, String> headers, String body) {
+
+    /**
+     * @return method and path without query, used to group statistics
+     */
+    String endpoint() {
+        int query = uri.indexOf('?');
+        return method + " " + (query < 0 ? uri : uri.substring(0, query));
+    }
+}
@@ -0,0 +1,117 @@
+package careless.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Supplies the request to send for each arrival.
+ *
+ * @author jay
+ */
+interface RequestSource {
+
+    /**
+     * @param sequence arrival number, starting at 0
+     * @return request to send
+     */
+    ReplayRequest next(long sequence);
+
+    /**
+     * Replays recorded requests in log order, wrapping around at the end.
+     *
+     * @param requests recorded requests, not empty
+     * @return source
+     */
+    static RequestSource replay(List<ReplayRequest> requests) {
+        List<ReplayRequest> copy = List.copyOf(requests);
+        return sequence -> copy.get((int) (sequence % copy.size()));
+    }
+
+    /**
+     * Samples recorded requests at random, weighted per endpoint path.
+     * <p>
+     * Without weights, endpoints keep the frequency they have in the log. A weight given for a
+     * path replaces that path's share; paths without a weight keep their logged share.
+     *
+     * @param requests recorded requests, not empty
+     * @param weights  relative weight per path (e.g. {@code /page-one/submit=8}), may be empty
+     * @param seed     random seed, so runs are repeatable
+     * @return source
+     */
+    static RequestSource mix(List<ReplayRequest> requests, Map<String, Double> weights, long seed) {
+        Map<String, List<ReplayRequest>> byPath = new LinkedHashMap<>();
+        for (ReplayRequest request : requests) {
+            byPath.computeIfAbsent(path(request), key -> new ArrayList<>()).add(request);
+        }
+        List<List<ReplayRequest>> groups = new ArrayList<>(byPath.values());
+        double[] cumulative = new double[groups.size()];
+        double total = 0;
+        int i = 0;
+        for (Map.Entry<String, List<ReplayRequest>> group : byPath.entrySet()) {
+            total += weights.getOrDefault(group.getKey(), (double) group.getValue().size());
+            cumulative[i++] = total;
+        }
+        double sum = total;
+        SplittableRandom random = new SplittableRandom(seed);
+        return sequence -> {
+            synchronized (random) {
+                double pick = random.nextDouble(sum);
+                int index = 0;
+                while (index < cumulative.length - 1 && cumulative[index] <= pick) {
+                    index++;
+                }
+                List<ReplayRequest> group = groups.get(index);
+                return group.get(random.nextInt(group.size()));
+            }
+        };
+    }
+
+    /**
+     * Built-in mix for when no audit log is at hand: mostly form submissions shaped like the ones
+     * the lab receives (plain text, quotes, SQL fragments, long text), plus page views and
+     * suggestion lookups.
+     *
+     * @param seed random seed, so runs are repeatable
+     * @return source
+     */
+    static RequestSource synthetic(long seed) {
+        String[] fragments = {
+                "hello world", "it's a test", "O'Reilly", "'; DROP TABLE text_entries; --",
+                "' OR '1'='1", "1; SELECT pg_sleep(0)", "<script>alert(1)</script>", "café ünïcödé",
+        };
+        Map<String, String> form = Map.of("Content-Type", "application/x-www-form-urlencoded");
+        SplittableRandom random = new SplittableRandom(seed);
+        return sequence -> {
+            SplittableRandom local;
+            synchronized (random) {
+                local = random.split();
+            }
+            int roll = local.nextInt(100);
+            if (roll < 60) {
+                StringBuilder text = new StringBuilder(fragments[local.nextInt(fragments.length)]);
+                int padding = local.nextInt(10) == 0 ? 2000 + local.nextInt(8000) : local.nextInt(200);
+                while (text.length() < padding) {
+                    text.append(' ').append(fragments[local.nextInt(fragments.length)]);
+                }
+                return new ReplayRequest("POST", "/page-one/submit", form,
+                        "text=" + URLEncoder.encode(text.toString(), StandardCharsets.UTF_8));
+            }
+            if (roll < 85) {
+                return new ReplayRequest("GET", "/page-one", Map.of(), "");
+            }
+            String prefix = fragments[local.nextInt(fragments.length)].substring(0, 2);
+            return new ReplayRequest("GET", "/page-one/suggest?q=" + URLEncoder.encode(prefix, StandardCharsets.UTF_8),
+                    Map.of(), "");
+        };
+    }
+
+    private static String path(ReplayRequest request) {
+        String endpoint = request.endpoint();
+        return endpoint.substring(endpoint.indexOf(' ') + 1);
+    }
+}
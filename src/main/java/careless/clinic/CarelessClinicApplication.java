@@ -1,7 +1,9 @@
 package careless.clinic;
 
+import careless.util.Tools;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.security.Provider;
 import java.security.Security;
@@ -21,6 +23,7 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
     org.springframework.boot.autoconfigure.security.oauth2.client.servlet.OAuth2ClientAutoConfiguration.class,
     org.springframework.boot.autoconfigure.security.oauth2.client.servlet.OAuth2ClientWebSecurityAutoConfiguration.class
 })
+@EnableScheduling
 public class CarelessClinicApplication {
     public static Provider securityProvider;
     /**
@@ -30,6 +33,8 @@ public class CarelessClinicApplication {
      */
     public static void main(String[] args) {
         securityProvider = getBouncyCastleProvider();
+        // Parse the JWT key ring up front rather than on the first page-two request
+        Tools.getKeyRing();
         SpringApplication.run(CarelessClinicApplication.class, args);
     }
 
@@ -0,0 +1,82 @@
+package careless.clinic.admin;
+
+import careless.clinic.service.data.DataService;
+import careless.clinic.service.data.ImportFormat;
+import careless.clinic.service.data.ImportProgress;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * Bulk upload of text entries for seeding lab datasets.
+ * <p>
+ * Lives under {@code /private}, so it requires an authenticated session.
+ *
+ * @author jay
+ * @see DataService#importEntries
+ */
+@Slf4j
+@Controller
+@RequestMapping("/private/entries")
+public class EntryImportController {
+
+    @Autowired
+    private DataService dataService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Imports the request body and streams progress back as NDJSON, one line per committed chunk.
+     * <p>
+     * Example: {@code curl --data-binary @entries.csv -H 'Content-Type: text/csv' .../private/entries/import}
+     *
+     * @param format input format ({@code csv} or {@code ndjson}); defaults to the request content type
+     * @param request HTTP request carrying the data
+     * @param response HTTP response receiving progress lines
+     * @throws IOException if the request or response stream fails
+     */
+    @PostMapping("/import")
+    public void importEntries(@RequestParam(value = "format", required = false) String format,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        ImportFormat importFormat;
+        try {
+            importFormat = ImportFormat.from(format != null ? format : request.getContentType());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, e.getMessage());
+            return;
+        }
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+        try {
+            dataService.importEntries(request.getInputStream(), importFormat, progress -> writeLine(out, progress));
+        } catch (RuntimeException e) {
+            // Progress lines may already be committed, so report the failure in-band
+            log.error("Error importing text entries", e);
+            out.println(objectMapper.createObjectNode().put("error", e.getMessage()));
+            out.flush();
+        }
+    }
+
+    private void writeLine(PrintWriter out, ImportProgress progress) {
+        try {
+            out.println(objectMapper.writeValueAsString(progress));
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package careless.clinic.admin;
+
+import careless.clinic.service.data.DataService;
+import careless.clinic.service.data.RawColumn;
+import careless.clinic.service.data.RawQuerySummary;
+import careless.clinic.service.data.RawRowHandler;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams the result of a raw SQL query as NDJSON or CSV, for exporting lab datasets.
+ * <p>
+ * Rows are written as they are read from the database cursor, so neither side buffers the
+ * result. Output stops at {@code clinic.raw-query.export.max-rows} rows,
+ * {@code max-bytes} bytes or after {@code timeout}, whichever comes first.
+ * <p>
+ * Lives under {@code /private}, so it requires an authenticated session.
+ *
+ * @author jay
+ * @see DataService#streamRawQuery
+ */
+@Slf4j
+@Controller
+@RequestMapping("/private/query")
+public class RawQueryExportController {
+
+    @Autowired
+    private DataService dataService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${clinic.raw-query.export.max-rows:1000000}")
+    private int maxRows;
+
+    @Value("${clinic.raw-query.export.max-bytes:256MB}")
+    private DataSize maxBytes;
+
+    @Value("${clinic.raw-query.export.timeout:60s}")
+    private Duration timeout;
+
+    /**
+     * Runs the query and streams its rows back.
+     * <p>
+     * NDJSON output starts with a {@code columns} line, then one JSON array per row, and ends with
+     * a summary line ({@code rows}, {@code cutOff}, {@code elapsedMs}); failures after the first
+     * line are reported in-band as an {@code error} line. CSV output has a header row and no
+     * trailer, so a cut-off CSV export is only visible in the log.
+     * <p>
+     * Example: {@code curl --data-urlencode 'sql=SELECT * FROM text_entries' .../private/query/export?format=csv}
+     * <p>
+     * WARNING: Intentionally vulnerable to SQL injection for educational purposes.
+     *
+     * @param sql unsanitized SQL query
+     * @param format {@code ndjson} (default) or {@code csv}
+     * @param limit optional row limit, capped at {@code max-rows}
+     * @param response HTTP response receiving the rows
+     * @throws IOException if the response stream fails
+     */
+    @PostMapping("/export")
+    public void export(@RequestParam("sql") String sql,
+                       @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                       @RequestParam(value = "limit", required = false) Integer limit,
+                       HttpServletResponse response) throws IOException {
+        boolean csv;
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "ndjson", "jsonl" -> csv = false;
+            case "csv" -> csv = true;
+            default -> {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported export format: " + format);
+                return;
+            }
+        }
+
+        int rowLimit = limit != null ? Math.max(0, Math.min(limit, maxRows)) : maxRows;
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        LineSink sink = new LineSink(response.getOutputStream(), maxBytes.toBytes());
+        RawRowHandler handler = csv ? new CsvRows(sink) : new NdjsonRows(sink);
+
+        try {
+            RawQuerySummary summary = dataService.streamRawQuery(sql, rowLimit, timeout, handler);
+            if (summary.truncated()) {
+                log.info("Raw query export cut off ({}) after {} rows, {} bytes", summary.cutOff(), summary.rows(), sink.written);
+            }
+            if (!csv) {
+                sink.forceLine(objectMapper.createObjectNode()
+                        .put("rows", summary.rows())
+                        .put("cutOff", summary.cutOff() != null ? summary.cutOff().name() : null)
+                        .put("elapsedMs", summary.elapsedMs())
+                        .toString());
+            }
+        } catch (RuntimeException e) {
+            log.error("Error exporting raw query", e);
+            // The wrapper only says where it failed; the client wants the SQL error
+            String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (!response.isCommitted() && sink.written == 0) {
+                response.reset();
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, message);
+                return;
+            }
+            // Rows may already be committed, so report the failure in-band
+            if (!csv) {
+                sink.forceLine(objectMapper.createObjectNode().put("error", message).toString());
+            }
+        }
+        sink.flush();
+    }
+
+    /**
+     * Writes whole lines to the response until the byte cap is reached.
+     */
+    private static final class LineSink {
+
+        private final OutputStream out;
+        private final long maxBytes;
+        private final byte[] buffer = new byte[64 * 1024];
+        private int buffered;
+        private long written;
+
+        private LineSink(OutputStream out, long maxBytes) {
+            this.out = out;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * @return false if the line would exceed the byte cap; nothing is written then
+         */
+        boolean line(byte[] line, int length) throws IOException {
+            if (written + length + 1 > maxBytes) {
+                return false;
+            }
+            write(line, length);
+            return true;
+        }
+
+        /**
+         * Writes a line past the byte cap, for the trailer.
+         */
+        void forceLine(String line) throws IOException {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            write(bytes, bytes.length);
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, buffered);
+            buffered = 0;
+            out.flush();
+        }
+
+        private void write(byte[] line, int length) throws IOException {
+            if (buffered + length + 1 > buffer.length) {
+                out.write(buffer, 0, buffered);
+                buffered = 0;
+            }
+            if (length + 1 > buffer.length) {
+                out.write(line, 0, length);
+                out.write('\n');
+            } else {
+                System.arraycopy(line, 0, buffer, buffered, length);
+                buffered += length;
+                buffer[buffered++] = '\n';
+            }
+            written += length + 1;
+        }
+    }
+
+    /**
+     * One JSON array per row, after a {@code columns} line.
+     */
+    private final class NdjsonRows implements RawRowHandler {
+
+        private final LineSink sink;
+        private final ReusableBuffer line = new ReusableBuffer();
+
+        private NdjsonRows(LineSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void columns(List<RawColumn> columns) throws IOException {
+            sink.forceLine(objectMapper.writeValueAsString(Map.of("columns", columns)));
+        }
+
+        @Override
+        public boolean row(Object[] values) throws IOException {
+            line.reset();
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(line)) {
+                json.writeStartArray();
+                for (Object value : values) {
+                    writeJsonValue(json, value);
+                }
+                json.writeEndArray();
+            }
+            return sink.line(line.bytes(), line.size());
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header row.
+     */
+    private static final class CsvRows implements RawRowHandler {
+
+        private final LineSink sink;
+        private final StringBuilder line = new StringBuilder();
+
+        private CsvRows(LineSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void columns(List<RawColumn> columns) throws IOException {
+            line.setLength(0);
+            for (int i = 0; i < columns.size(); i++) {
+                appendField(i, columns.get(i).name());
+            }
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            sink.line(bytes, bytes.length);
+        }
+
+        @Override
+        public boolean row(Object[] values) throws IOException {
+            line.setLength(0);
+            for (int i = 0; i < values.length; i++) {
+                appendField(i, values[i] == null ? null : textValue(values[i]));
+            }
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            return sink.line(bytes, bytes.length);
+        }
+
+        /**
+         * Appends one field; null stays empty, empty strings are quoted to tell them apart.
+         */
+        private void appendField(int index, String value) {
+            if (index > 0) {
+                line.append(',');
+            }
+            if (value == null) {
+                return;
+            }
+            if (value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+    }
+
+    private static void writeJsonValue(JsonGenerator json, Object value) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof Boolean b) {
+            json.writeBoolean(b);
+        } else if (value instanceof Number || value instanceof String || value instanceof byte[]) {
+            json.writeObject(value);
+        } else {
+            json.writeString(textValue(value));
+        }
+    }
+
+    /**
+     * Text form of a column value: timestamps in ISO form, arrays in PostgreSQL literal form.
+     */
+    private static String textValue(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof byte[] bytes) {
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+        if (value instanceof Array array) {
+            try {
+                return array.toString();
+            } finally {
+                try {
+                    array.free();
+                } catch (SQLException e) {
+                    log.debug("Error freeing array: {}", e.getMessage());
+                }
+            }
+        }
+        return value.toString();
+    }
+
+    /**
+     * Byte buffer that exposes its array without copying.
+     */
+    private static final class ReusableBuffer extends ByteArrayOutputStream {
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
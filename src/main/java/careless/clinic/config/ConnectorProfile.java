@@ -0,0 +1,53 @@
+package careless.clinic.config;
+
+/**
+ * Preset Tomcat connector limits, selected with {@code clinic.tomcat.connector-profile}.
+ * <p>
+ * A null limit keeps Tomcat's own default. Individual {@code clinic.tomcat.*} settings
+ * override the preset.
+ *
+ * @author jay
+ * @see TomcatConfig
+ */
+public enum ConnectorProfile {
+
+    /** Tomcat defaults: 8192 connections, accept count 100, 100 requests per keep-alive connection */
+    DEFAULT(null, null, null, null),
+
+    /** Many slow, mostly idle clients (classroom labs): large limits, long keep-alive, unlimited requests per connection */
+    HIGH_CONCURRENCY(20_000, 2_000, 60_000, -1),
+
+    /** Short-lived benchmark clients: moderate limits, quick keep-alive recycling */
+    THROUGHPUT(10_000, 1_000, 5_000, 1_000);
+
+    private final Integer maxConnections;
+    private final Integer acceptCount;
+    private final Integer keepAliveTimeoutMs;
+    private final Integer maxKeepAliveRequests;
+
+    ConnectorProfile(Integer maxConnections, Integer acceptCount, Integer keepAliveTimeoutMs, Integer maxKeepAliveRequests) {
+        this.maxConnections = maxConnections;
+        this.acceptCount = acceptCount;
+        this.keepAliveTimeoutMs = keepAliveTimeoutMs;
+        this.maxKeepAliveRequests = maxKeepAliveRequests;
+    }
+
+    public Integer maxConnections() {
+        return maxConnections;
+    }
+
+    public Integer acceptCount() {
+        return acceptCount;
+    }
+
+    public Integer keepAliveTimeoutMs() {
+        return keepAliveTimeoutMs;
+    }
+
+    /**
+     * @return maximum requests per keep-alive connection (-1 for unlimited), or null for the Tomcat default
+     */
+    public Integer maxKeepAliveRequests() {
+        return maxKeepAliveRequests;
+    }
+}
@@ -0,0 +1,31 @@
+package careless.clinic.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * Maps {@code clinic.tomcat.execution-mode} onto {@code spring.threads.virtual.enabled}.
+ * <p>
+ * Boot then runs Tomcat requests (and its task executor and scheduler) on virtual threads in
+ * {@link TomcatConfig.ExecutionMode#VIRTUAL} mode, so the execution mode stays the one switch.
+ *
+ * @author jay
+ */
+public class ExecutionModeEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String PROPERTY_SOURCE = "clinicExecutionMode";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        TomcatConfig.ExecutionMode mode = Binder.get(environment)
+                .bind("clinic.tomcat.execution-mode", TomcatConfig.ExecutionMode.class)
+                .orElse(TomcatConfig.ExecutionMode.PLATFORM);
+        environment.getPropertySources().addFirst(new MapPropertySource(PROPERTY_SOURCE,
+                Map.of("spring.threads.virtual.enabled", mode == TomcatConfig.ExecutionMode.VIRTUAL)));
+    }
+}
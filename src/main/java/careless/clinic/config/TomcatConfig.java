@@ -1,7 +1,11 @@
 package careless.clinic.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.Connector;
 import org.apache.catalina.valves.RemoteIpValve;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
@@ -12,13 +16,52 @@ import org.springframework.context.annotation.Configuration;
  * <p>
  * Configures RemoteIpValve to trust proxy headers and correctly determine
  * the external protocol, port, and hostname for redirect generation.
+ * <p>
+ * Also selects how requests are executed (platform thread pool or one virtual thread per
+ * request), the connector limits, and optional cleartext HTTP/2 (h2c).
  *
  * @author jay
+ * @see ConnectorProfile
+ * @see VirtualThreadPinningMonitor
  */
 @Slf4j
 @Configuration
 public class TomcatConfig {
 
+    /**
+     * How Tomcat runs request processing.
+     */
+    public enum ExecutionMode {
+        /** Tomcat's bounded platform thread pool ({@code server.tomcat.threads.*}) */
+        PLATFORM,
+        /**
+         * A new virtual thread per request; blocking JDBC calls no longer hold an OS thread.
+         * Applied through {@code spring.threads.virtual.enabled}, see {@link ExecutionModeEnvironmentPostProcessor}
+         */
+        VIRTUAL
+    }
+
+    @Value("${clinic.tomcat.execution-mode:platform}")
+    private ExecutionMode executionMode;
+
+    @Value("${clinic.tomcat.connector-profile:default}")
+    private ConnectorProfile connectorProfile;
+
+    @Value("${clinic.tomcat.max-connections:#{null}}")
+    private Integer maxConnections;
+
+    @Value("${clinic.tomcat.accept-count:#{null}}")
+    private Integer acceptCount;
+
+    @Value("${clinic.tomcat.keep-alive-timeout-ms:#{null}}")
+    private Integer keepAliveTimeoutMs;
+
+    @Value("${clinic.tomcat.max-keep-alive-requests:#{null}}")
+    private Integer maxKeepAliveRequests;
+
+    @Value("${clinic.tomcat.h2c:false}")
+    private boolean h2c;
+
     /**
      * Customizes Tomcat to properly handle X-Forwarded-* headers.
      * <p>
@@ -50,6 +93,43 @@ public class TomcatConfig {
             log.info("RemoteIpValve configured - internalProxies: .*, protocolHeader: X-Forwarded-Proto, portHeader: X-Forwarded-Port");
 
             factory.addEngineValves(remoteIpValve);
+
+            factory.addConnectorCustomizers(this::customizeConnector);
+            log.info("Tomcat execution mode: {}, connector profile: {}, h2c: {}", executionMode, connectorProfile, h2c);
         };
     }
+
+    /**
+     * Applies the connector profile, individual overrides and h2c to the HTTP connector.
+     *
+     * @param connector Tomcat connector
+     */
+    private void customizeConnector(Connector connector) {
+        if (connector.getProtocolHandler() instanceof AbstractHttp11Protocol<?> protocol) {
+            Integer connections = maxConnections != null ? maxConnections : connectorProfile.maxConnections();
+            Integer backlog = acceptCount != null ? acceptCount : connectorProfile.acceptCount();
+            Integer keepAlive = keepAliveTimeoutMs != null ? keepAliveTimeoutMs : connectorProfile.keepAliveTimeoutMs();
+            Integer keepAliveRequests = maxKeepAliveRequests != null ? maxKeepAliveRequests : connectorProfile.maxKeepAliveRequests();
+
+            if (connections != null) {
+                protocol.setMaxConnections(connections);
+            }
+            if (backlog != null) {
+                protocol.setAcceptCount(backlog);
+            }
+            if (keepAlive != null) {
+                protocol.setKeepAliveTimeout(keepAlive);
+            }
+            if (keepAliveRequests != null) {
+                protocol.setMaxKeepAliveRequests(keepAliveRequests);
+            }
+            log.info("Tomcat connector - maxConnections: {}, acceptCount: {}, keepAliveTimeout: {} ms, maxKeepAliveRequests: {}",
+                    protocol.getMaxConnections(), protocol.getAcceptCount(),
+                    protocol.getKeepAliveTimeout(), protocol.getMaxKeepAliveRequests());
+        }
+        if (h2c) {
+            // HTTP/2 over cleartext via Upgrade: h2c (and prior knowledge); TLS is terminated at the proxy
+            connector.addUpgradeProtocol(new Http2Protocol());
+        }
+    }
 }
@@ -0,0 +1,90 @@
+package careless.clinic.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Publishes virtual thread pinning, as reported by JFR, as Micrometer metrics.
+ * <p>
+ * A virtual thread that blocks while pinned (inside {@code synchronized} or a native frame)
+ * holds its carrier thread, which defeats {@link TomcatConfig.ExecutionMode#VIRTUAL}.
+ * Every pinned block longer than {@code clinic.tomcat.pinning-monitor.threshold} is recorded
+ * in the {@code jvm.threads.virtual.pinned} timer; submit failures are counted in
+ * {@code jvm.threads.virtual.submit.failed}.
+ * <p>
+ * Only runs when requests execute on virtual threads; the JFR stream costs nothing useful otherwise.
+ *
+ * @author jay
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "clinic.tomcat.pinning-monitor.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String SUBMIT_FAILED_EVENT = "jdk.VirtualThreadSubmitFailed";
+
+    private final Timer pinned;
+    private final Counter submitFailed;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${clinic.tomcat.pinning-monitor.threshold:20ms}") Duration threshold) {
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Blocking operations that pinned a virtual thread to its carrier")
+                .register(meterRegistry);
+        this.submitFailed = Counter.builder("jvm.threads.virtual.submit.failed")
+                .description("Virtual threads that could not be scheduled on a carrier")
+                .register(meterRegistry);
+        this.threshold = threshold;
+    }
+
+    /**
+     * Starts the JFR event stream.
+     */
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.enable(SUBMIT_FAILED_EVENT);
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.onEvent(SUBMIT_FAILED_EVENT, event -> submitFailed.increment());
+        stream.startAsync();
+        log.info("Virtual thread pinning monitor started (threshold {})", threshold);
+    }
+
+    /**
+     * Stops the JFR event stream.
+     */
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        if (log.isDebugEnabled() && event.getStackTrace() != null && !event.getStackTrace().getFrames().isEmpty()) {
+            RecordedFrame top = event.getStackTrace().getFrames().get(0);
+            log.debug("Virtual thread pinned for {} at {}.{}", event.getDuration(),
+                    top.getMethod().getType().getName(), top.getMethod().getName());
+        }
+    }
+}
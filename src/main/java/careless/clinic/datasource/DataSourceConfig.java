@@ -0,0 +1,121 @@
+package careless.clinic.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write splitting, active when {@code clinic.datasource.replicas} lists at least one JDBC URL.
+ * <p>
+ * Replaces the auto-configured pool with:
+ * <ul>
+ *   <li>the primary pool, configured from {@code spring.datasource} as before</li>
+ *   <li>one pool per replica ({@code <pool-name>-replica-N}), with the primary's credentials
+ *       unless {@code clinic.datasource.replica-username}/{@code -password} are set</li>
+ *   <li>a {@link ReplicaRoutingDataSource} over them, behind a lazy connection proxy, as the
+ *       application {@link DataSource}</li>
+ *   <li>the {@link ReadYourWritesFilter}</li>
+ * </ul>
+ * Without replicas none of this is created and everything uses the single primary pool.
+ *
+ * @author jay
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("!'${clinic.datasource.replicas:}'.isBlank()")
+public class DataSourceConfig {
+
+    /**
+     * Primary pool, bound to {@code spring.datasource.hikari} like the auto-configured one.
+     *
+     * @param properties {@code spring.datasource} properties
+     * @return primary pool
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Routing data source over the primary and one pool per replica URL.
+     *
+     * @return routing data source
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${clinic.datasource.replicas}") List<String> urls,
+            @Value("${clinic.datasource.replica-username:}") String username,
+            @Value("${clinic.datasource.replica-password:}") String password,
+            @Value("${clinic.datasource.replica-pool-size:10}") int poolSize,
+            @Value("${clinic.datasource.replica-connection-timeout:2s}") Duration connectionTimeout,
+            @Value("${clinic.datasource.max-lag:5s}") Duration maxLag) {
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(primaryDataSource.getPoolName() + "-replica-" + pools.size());
+            pool.setJdbcUrl(url.trim());
+            pool.setDriverClassName(properties.determineDriverClassName());
+            pool.setUsername(username.isEmpty() ? properties.determineUsername() : username);
+            pool.setPassword(password.isEmpty() ? properties.determinePassword() : password);
+            pool.setMaximumPoolSize(poolSize);
+            pool.setConnectionTimeout(connectionTimeout.toMillis());
+            pool.setReadOnly(true);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.add(pool);
+        }
+        log.info("Read/write splitting enabled - replicas: {}, maxLag: {}",
+                pools.stream().map(HikariDataSource::getJdbcUrl).toList(), maxLag);
+        return new ReplicaRoutingDataSource(primaryDataSource, pools, maxLag, meterRegistry);
+    }
+
+    /**
+     * Application data source: connections are taken from the router only at the first
+     * statement, when the transaction's read-only flag is known.
+     *
+     * @param replicaRoutingDataSource router
+     * @return data source used by JPA, JdbcTemplate, Flyway and DataService
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Read-your-writes window after unsafe requests, ahead of the security filters.
+     *
+     * @param window how long a client's reads stay on the primary; should exceed the usual lag
+     * @return filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${clinic.datasource.read-your-writes-window:10s}") Duration window) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -0,0 +1,22 @@
+package careless.clinic.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method that only reads as eligible for a replica without starting a read-only
+ * transaction, e.g. because its connection outlives the call or it must run in autocommit mode.
+ * <p>
+ * Methods that can run in a transaction should use {@code @Transactional(readOnly = true)} instead.
+ *
+ * @author jay
+ * @see ReadRouting
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PreferReplica {
+}
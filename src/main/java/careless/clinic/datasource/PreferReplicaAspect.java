@@ -0,0 +1,35 @@
+package careless.clinic.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the {@link PreferReplica} hint for the duration of the annotated call.
+ * <p>
+ * The hint is harmless without replicas: everything then stays on the primary.
+ *
+ * @author jay
+ */
+@Aspect
+@Component
+public class PreferReplicaAspect {
+
+    /**
+     * Runs the call with the replica hint set.
+     *
+     * @param joinPoint intercepted call
+     * @return result of the call
+     * @throws Throwable whatever the call throws
+     */
+    @Around("@annotation(careless.clinic.datasource.PreferReplica)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        Boolean previous = ReadRouting.preferReplica();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadRouting.restoreReplicaPreferred(previous);
+        }
+    }
+}
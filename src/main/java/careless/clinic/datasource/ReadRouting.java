@@ -0,0 +1,72 @@
+package careless.clinic.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Per-thread routing hints read by {@link ReplicaRoutingDataSource}.
+ * <p>
+ * A connection may go to a replica if it is opened inside a {@code @Transactional(readOnly = true)}
+ * method or under an explicit {@link PreferReplica} hint, and the thread is not pinned to the
+ * primary by a read-your-writes window.
+ *
+ * @author jay
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> REPLICA_PREFERRED = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    /**
+     * @return true if the current work only reads and may be served by a replica
+     */
+    public static boolean replicaPreferred() {
+        return Boolean.TRUE.equals(REPLICA_PREFERRED.get())
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * @return true if the current thread must read from the primary
+     */
+    public static boolean primaryPinned() {
+        return Boolean.TRUE.equals(PRIMARY_PINNED.get());
+    }
+
+    /**
+     * Marks the current thread's work as read-only until {@link #restoreReplicaPreferred}.
+     *
+     * @return previous hint, to pass to {@link #restoreReplicaPreferred}
+     */
+    static Boolean preferReplica() {
+        Boolean previous = REPLICA_PREFERRED.get();
+        REPLICA_PREFERRED.set(Boolean.TRUE);
+        return previous;
+    }
+
+    /**
+     * @param previous value returned by {@link #preferReplica}
+     */
+    static void restoreReplicaPreferred(Boolean previous) {
+        if (previous == null) {
+            REPLICA_PREFERRED.remove();
+        } else {
+            REPLICA_PREFERRED.set(previous);
+        }
+    }
+
+    /**
+     * Sends every read of the current thread to the primary until {@link #unpinPrimary}.
+     */
+    static void pinPrimary() {
+        PRIMARY_PINNED.set(Boolean.TRUE);
+    }
+
+    /**
+     * Ends {@link #pinPrimary}.
+     */
+    static void unpinPrimary() {
+        PRIMARY_PINNED.remove();
+    }
+}
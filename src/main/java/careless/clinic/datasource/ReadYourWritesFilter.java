@@ -0,0 +1,85 @@
+package careless.clinic.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Keeps a client's reads on the primary for a short window after it submitted a write, so the
+ * redirect after a submit shows the new entry even if the replicas have not replayed it yet.
+ * <p>
+ * Every request with an unsafe method starts the window, recorded in a cookie holding its end
+ * time; requests arriving within the window are pinned to the primary. End times further away
+ * than the configured window are ignored, so the cookie cannot pin a client for longer.
+ *
+ * @author jay
+ * @see ReadRouting#primaryPinned()
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "clinic-primary-until";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = switch (request.getMethod()) {
+            case "GET", "HEAD", "OPTIONS", "TRACE" -> false;
+            default -> true;
+        };
+        if (write) {
+            // Before the chain: the redirect after a submit commits the response
+            response.addCookie(cookie(now + window.toMillis()));
+        }
+        if (!write && !withinWindow(request, now)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ReadRouting.pinPrimary();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadRouting.unpinPrimary();
+        }
+    }
+
+    private boolean withinWindow(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    long until = Long.parseLong(cookie.getValue());
+                    return until > now && until - now <= window.toMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Cookie cookie(long until) {
+        Cookie cookie = new Cookie(COOKIE, Long.toString(until));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+        cookie.setAttribute("SameSite", "Lax");
+        return cookie;
+    }
+}
@@ -0,0 +1,213 @@
+package careless.clinic.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes connections between the primary and a set of read replicas.
+ * <p>
+ * Reads marked by {@link ReadRouting} go round-robin to replicas that answered the last lag
+ * check within {@code clinic.datasource.max-lag}; everything else, and every read while no
+ * replica qualifies or the thread is pinned for read-your-writes, goes to the primary. A replica
+ * that refuses a connection is taken out of rotation until the next successful lag check, and
+ * the read falls back to the primary.
+ * <p>
+ * Meters: {@code clinic.datasource.route} (tags {@code target}, {@code reason}),
+ * {@code clinic.datasource.replica.lag} and {@code clinic.datasource.replica.available}
+ * (tag {@code replica}).
+ * <p>
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * so the route is chosen at the first statement, after the transaction's read-only flag is set.
+ *
+ * @author jay
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    /** Replay delay in seconds; 0 when fully replayed or not a standby (e.g. a logical copy) */
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    /**
+     * One replica pool and its last observed state.
+     */
+    private static final class Replica {
+
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean up;
+        private volatile double lagSeconds = Double.NaN;
+        private volatile boolean available;
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> routes = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param primary       primary pool
+     * @param replicaPools  replica pools, named after their Hikari pool name
+     * @param maxLag        replicas further behind than this are not used
+     * @param meterRegistry registry for routing and lag meters
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaPools, Duration maxLag,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicaPools.stream().map(pool -> new Replica(pool.getPoolName(), pool)).toList();
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.meterRegistry = meterRegistry;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (Replica replica : replicas) {
+            targets.put(replica.name, replica.dataSource);
+            Gauge.builder("clinic.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .description("Replay lag of a read replica at the last check")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+            Gauge.builder("clinic.datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .description("1 if the replica currently receives reads")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica replica = selectReplica(false);
+        return replica != null ? replica.name : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = selectReplica(true);
+        if (replica != null) {
+            try {
+                Connection conn = replica.dataSource.getConnection();
+                count("replica", "read");
+                return conn;
+            } catch (SQLException e) {
+                markDown(replica, e);
+                count(PRIMARY, "replica-failed");
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Checks every replica's replay lag and updates which replicas receive reads.
+     */
+    @Scheduled(fixedDelayString = "${clinic.datasource.lag-check-interval:2s}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection conn = replica.dataSource.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(LAG_QUERY)) {
+                rs.next();
+                replica.lagSeconds = rs.getDouble(1);
+                replica.up = true;
+                setAvailable(replica, replica.lagSeconds <= maxLagSeconds);
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+
+    /**
+     * Closes the replica pools; the primary pool is closed by its own bean.
+     */
+    @PreDestroy
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    /**
+     * Picks a replica for the current thread, if it is allowed to use one.
+     *
+     * @param record true to count the routing decision when it goes to the primary
+     * @return replica, or null for the primary
+     */
+    private Replica selectReplica(boolean record) {
+        if (!ReadRouting.replicaPreferred()) {
+            if (record) {
+                count(PRIMARY, "write");
+            }
+            return null;
+        }
+        if (ReadRouting.primaryPinned()) {
+            if (record) {
+                count(PRIMARY, "read-your-writes");
+            }
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.size()));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.available) {
+                return replica;
+            }
+        }
+        if (record) {
+            count(PRIMARY, "no-replica");
+        }
+        return null;
+    }
+
+    private void markDown(Replica replica, SQLException e) {
+        if (replica.up) {
+            log.warn("Replica {} is unreachable, reading from the primary: {}", replica.name, e.getMessage());
+        }
+        replica.up = false;
+        replica.lagSeconds = Double.NaN;
+        setAvailable(replica, false);
+    }
+
+    private void setAvailable(Replica replica, boolean available) {
+        if (available != replica.available) {
+            log.info("Replica {} {} (lag {}s, max {}s)", replica.name,
+                    available ? "now receives reads" : "taken out of rotation", replica.lagSeconds, maxLagSeconds);
+        }
+        replica.available = available;
+    }
+
+    private void count(String target, String reason) {
+        routes.computeIfAbsent(target + '/' + reason, key -> Counter.builder("clinic.datasource.route")
+                        .description("Connections handed out, by target and routing reason")
+                        .tags("target", target, "reason", reason)
+                        .register(meterRegistry))
+                .increment();
+    }
+}
@@ -0,0 +1,79 @@
+package careless.clinic.datasource;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a controller's database work for one request on a single pooled connection.
+ * <p>
+ * The work runs in one transaction, which binds a connection to the thread: raw JDBC through
+ * {@link #execute}, {@code JdbcTemplate} and JPA calls in the services all share it. The
+ * transaction commits and the connection goes back to the pool when the call returns, so a
+ * controller that calls this once per request borrows at most one connection and releases it
+ * before the view renders.
+ * <p>
+ * Beginning the transaction checks out a connection straight away, so lookups that are usually
+ * answered from a cache call this only on a miss.
+ * <p>
+ * Form submissions that run user-built SQL use {@link #autocommit} instead, so injected
+ * transaction control behaves as it would on a plain connection.
+ * <p>
+ * Cursor-backed views that stream while rendering hold their own connection and do not go
+ * through here.
+ *
+ * @author jay
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestConnection {
+
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Runs work in the request transaction.
+     *
+     * @param <T> result type
+     * @param work service calls to make on the shared connection
+     * @return result of the work
+     */
+    public <T> T call(Supplier<T> work) {
+        return transactionTemplate.execute(status -> work.get());
+    }
+
+    /**
+     * Runs raw JDBC work in the request transaction.
+     * <p>
+     * The connection is owned by the transaction and must not be closed.
+     *
+     * @param <T> result type
+     * @param work JDBC work on the shared connection
+     * @return result of the work
+     * @throws org.springframework.dao.DataAccessException if the work fails with a {@link SQLException}
+     */
+    public <T> T execute(ConnectionCallback<T> work) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute(work));
+    }
+
+    /**
+     * Runs raw JDBC work on one pooled connection in autocommit mode, outside any transaction.
+     * <p>
+     * Every statement commits on its own, so statements that carry their own transaction control
+     * ({@code COMMIT}, {@code ROLLBACK}) cannot end a surrounding transaction, and a failed
+     * statement leaves the connection usable for the next one.
+     *
+     * @param <T> result type
+     * @param work JDBC work on the borrowed connection
+     * @return result of the work
+     * @throws org.springframework.dao.DataAccessException if the work fails with a {@link SQLException}
+     */
+    public <T> T autocommit(ConnectionCallback<T> work) {
+        return jdbcTemplate.execute(work);
+    }
+}
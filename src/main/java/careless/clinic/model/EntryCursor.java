@@ -0,0 +1,62 @@
+package careless.clinic.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset pagination cursor over the {@code (created_at, id)} ordering of text entries.
+ * <p>
+ * Encoded as an opaque URL-safe token so it can be passed around as a request parameter.
+ *
+ * @param createdAt creation timestamp of the boundary entry
+ * @param id        ID of the boundary entry (tie-breaker for equal timestamps)
+ * @author jay
+ * @see EntryPage
+ */
+public record EntryCursor(LocalDateTime createdAt, long id) {
+
+    /**
+     * Builds a cursor pointing at the given entry summary.
+     *
+     * @param summary boundary entry
+     * @return cursor for the entry
+     */
+    public static EntryCursor of(EntrySummary summary) {
+        return new EntryCursor(summary.createdAt(), summary.id());
+    }
+
+    /**
+     * Encodes this cursor as an opaque URL-safe token.
+     *
+     * @return encoded cursor
+     */
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor token previously produced by {@link #encode()}.
+     *
+     * @param token encoded cursor, may be null or blank
+     * @return decoded cursor, or null if the token is missing or malformed
+     */
+    public static EntryCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                return null;
+            }
+            return new EntryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package careless.clinic.model;
+
+import java.util.List;
+
+/**
+ * Entries above an ID, read together with the bounds of the snapshot that read them.
+ * <p>
+ * Transactions with an ID below {@code snapshotXmin} had all finished when the rows were read;
+ * any transaction still running had an ID of at least {@code snapshotXmin}, and every
+ * transaction that started later has one of at least {@code snapshotXmax}.
+ *
+ * @param entries      entries, lowest ID first
+ * @param snapshotXmin oldest transaction ID still running when the entries were read
+ * @param snapshotXmax first transaction ID not yet assigned when the entries were read
+ * @param <T>          entry type
+ * @author jay
+ * @see careless.clinic.service.data.CommitWatermark
+ */
+public record EntryDelta<T>(List<T> entries, long snapshotXmin, long snapshotXmax) {
+}
@@ -0,0 +1,16 @@
+package careless.clinic.model;
+
+import java.util.List;
+
+/**
+ * One keyset-paginated page of entries, newest first.
+ *
+ * @param entries    entries on this page
+ * @param nextCursor cursor for the next (older) page, or null if this is the last page
+ * @param prevCursor cursor for the previous (newer) page, or null if this is the first page
+ * @param <T>        entry type
+ * @author jay
+ * @see EntryCursor
+ */
+public record EntryPage<T>(List<T> entries, String nextCursor, String prevCursor) {
+}
@@ -0,0 +1,37 @@
+package careless.clinic.model;
+
+import java.time.Instant;
+
+/**
+ * Validator for the set of text entries, used for conditional GETs of the entry pages.
+ * <p>
+ * Any write changes at least one component: inserts and updates move {@code lastUpdated} and
+ * {@code changeCount}, deletes change {@code count} and {@code changeCount}.
+ *
+ * @param count        number of entries
+ * @param lastUpdated  latest {@code updated_at}, or null if the table is empty
+ * @param changeCount  writes observed by this instance since startup
+ * @param lastChanged  when this instance last observed a write (its startup time if none)
+ * @param instance     identifies the running instance, so a redeploy never matches old validators
+ * @author jay
+ */
+public record EntrySetVersion(long count, Instant lastUpdated, long changeCount, Instant lastChanged, long instance) {
+
+    /**
+     * @return weak entity tag; the rendered HTML is equivalent, not byte-identical, across versions
+     */
+    public String etag() {
+        long lastUpdatedMicros = lastUpdated == null ? 0
+                : lastUpdated.getEpochSecond() * 1_000_000 + lastUpdated.getNano() / 1_000;
+        return "W/\"" + Long.toHexString(instance) + '-' + Long.toHexString(changeCount) + '-'
+                + Long.toHexString(count) + '-' + Long.toHexString(lastUpdatedMicros) + '"';
+    }
+
+    /**
+     * @return value for {@code Last-Modified}, in epoch milliseconds
+     */
+    public long lastModified() {
+        Instant latest = lastUpdated == null || lastChanged.isAfter(lastUpdated) ? lastChanged : lastUpdated;
+        return latest.toEpochMilli();
+    }
+}
@@ -0,0 +1,52 @@
+package careless.clinic.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Listing view of a text entry: everything a listing row shows, without the full content.
+ * <p>
+ * The full content is loaded on demand, one entry at a time.
+ *
+ * @param id            entry ID
+ * @param title         entry title
+ * @param preview       first {@value #PREVIEW_LENGTH} characters of the content
+ * @param contentLength length of the full content in characters
+ * @param createdAt     creation timestamp
+ * @param updatedAt     last update timestamp
+ * @param jwtVerified   JWT status of the content, null until checked; false once the token has expired
+ * @author jay
+ * @see TextEntry
+ */
+public record EntrySummary(Long id, String title, String preview, int contentLength,
+                           LocalDateTime createdAt, LocalDateTime updatedAt, Boolean jwtVerified) {
+
+    /** Characters of content included in {@link #preview} */
+    public static final int PREVIEW_LENGTH = 200;
+
+    /**
+     * Builds the summary of a loaded entry.
+     *
+     * @param entry entry with its content
+     * @return summary of the entry
+     */
+    public static EntrySummary of(TextEntry entry) {
+        String content = entry.getContent();
+        Boolean jwtVerified = entry.getJwtVerified();
+        if (Boolean.TRUE.equals(jwtVerified) && entry.getJwtExpiresAt() != null
+                && !entry.getJwtExpiresAt().isAfter(Instant.now())) {
+            jwtVerified = false;
+        }
+        return new EntrySummary(entry.getId(), entry.getTitle(),
+                content != null ? content.substring(0, Math.min(content.length(), PREVIEW_LENGTH)) : null,
+                content != null ? content.length() : 0,
+                entry.getCreatedAt(), entry.getUpdatedAt(), jwtVerified);
+    }
+
+    /**
+     * @return true if the preview does not hold the whole content
+     */
+    public boolean truncated() {
+        return preview != null && preview.length() < contentLength;
+    }
+}
@@ -0,0 +1,15 @@
+package careless.clinic.model;
+
+/**
+ * One ranked full-text search result.
+ * <p>
+ * Highlights wrap matched terms in {@code <b>...</b>} and are NOT HTML-escaped.
+ *
+ * @param entry          matching entry
+ * @param rank           relevance from {@code ts_rank}, higher is better
+ * @param titleHighlight title with matched terms highlighted
+ * @param snippet        content fragments around the matched terms, highlighted
+ * @author jay
+ */
+public record SearchHit(TextEntry entry, double rank, String titleHighlight, String snippet) {
+}
@@ -0,0 +1,28 @@
+package careless.clinic.model;
+
+import java.util.List;
+
+/**
+ * One page of ranked search results, best match first.
+ *
+ * @param query   search query as entered
+ * @param hits    results on this page
+ * @param page    zero-based page number
+ * @param size    page size
+ * @param hasNext true if another page of results follows
+ * @author jay
+ * @see SearchHit
+ */
+public record SearchPage(String query, List<SearchHit> hits, int page, int size, boolean hasNext) {
+
+    /**
+     * Builds an empty result page.
+     *
+     * @param query search query
+     * @param size  page size
+     * @return page without hits
+     */
+    public static SearchPage empty(String query, int size) {
+        return new SearchPage(query, List.of(), 0, size, false);
+    }
+}
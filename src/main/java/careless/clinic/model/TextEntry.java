@@ -1,17 +1,19 @@
 package careless.clinic.model;
 
+import careless.clinic.service.data.ContentCodecConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 /**
  * Entity representing a text entry in the system.
  * <p>
- * Stores user-submitted text content with timestamps.
+ * Stores user-submitted text content with timestamps and its JWT verification status.
  *
  * @author jay
  */
@@ -31,10 +33,19 @@ public class TextEntry {
     @Column(length = 1255)
     private String title;
 
-    /** Entry content (max 12032 characters) */
+    /** Entry content (max 12032 characters), stored compressed when content compression is enabled */
     @Column(length = 12032)
+    @Convert(converter = ContentCodecConverter.class)
     private String content;
 
+    /** Leading characters of content that may be stored compressed, read by listings (null otherwise) */
+    @Column(name = "content_preview", length = 200)
+    private String contentPreview;
+
+    /** Length of content that may be stored compressed, read by listings (null otherwise) */
+    @Column(name = "content_length")
+    private Integer contentLength;
+
     /** Timestamp when entry was created */
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -43,7 +54,19 @@ public class TextEntry {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
-    /** Indicates if content is a valid JWT token (not persisted) */
-    @Transient
-    private boolean jwtVerified;
+    /** Indicates if content is a valid JWT token (null until checked, set on write or by background re-verification) */
+    @Column(name = "jwt_verified")
+    private Boolean jwtVerified;
+
+    /** Key ID of the key that verified the JWT content, if any */
+    @Column(name = "jwt_kid", length = 64)
+    private String jwtKid;
+
+    /** Fingerprint of the key set the JWT content was checked against (null if content is not a token) */
+    @Column(name = "jwt_key_set", length = 32)
+    private String jwtKeySet;
+
+    /** Expiry of the verified JWT content; the verified status no longer holds after it (null if none) */
+    @Column(name = "jwt_expires_at")
+    private Instant jwtExpiresAt;
 }
@@ -1,21 +1,44 @@
 package careless.clinic.page;
 
+import careless.clinic.datasource.RequestConnection;
+import careless.clinic.model.EntryPage;
+import careless.clinic.model.EntrySetVersion;
+import careless.clinic.model.EntrySummary;
 import careless.clinic.model.TextEntry;
+import careless.clinic.service.data.DataService;
+import careless.clinic.service.data.EntryChangeEvent;
+import careless.clinic.service.data.EntryStream;
+import careless.clinic.service.data.SubmissionWriter;
+import careless.clinic.service.feed.EntryFeed;
+import careless.clinic.service.jwt.JwtStatus;
+import careless.clinic.service.jwt.JwtVerificationService;
 import careless.util.Tools;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
-import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Controller for page two with SQL injection demonstration and JWT validation.
@@ -24,7 +47,7 @@ import java.util.List;
  *
  * @author jay
  * @see TextEntry
- * @see Tools#validateJwtSignature(String)
+ * @see JwtVerificationService#verify(String)
  */
 @Slf4j
 @Controller
@@ -32,38 +55,136 @@ import java.util.List;
 public class PageTwoController {
 
     @Autowired
-    private DataSource dataSource;
+    private RequestConnection requestConnection;
+
+    @Autowired
+    private DataService dataService;
+
+    @Autowired
+    private JwtVerificationService jwtVerificationService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SubmissionWriter submissionWriter;
+
+    @Autowired
+    private EntryFeed entryFeed;
+
+    @Value("${clinic.entries.page-size:50}")
+    private int pageSize;
 
     /**
-     * Displays page two with all text entries and JWT validation.
+     * Displays page two with one page of text entries and JWT validation.
      *
+     * @param after cursor for paging to older entries (optional)
+     * @param before cursor for paging back to newer entries (optional)
+     * @param request current request, for conditional GET handling
      * @param model Spring MVC model
-     * @return view name "page-two"
+     * @return view name "page-two", or null if answered with 304 Not Modified
      */
     @GetMapping()
-    public String pageTwo(Model model) {
-        model.addAttribute("entries", getAllEntries());
+    public String pageTwo(@RequestParam(value = "after", required = false) String after,
+                          @RequestParam(value = "before", required = false) String before,
+                          ServletWebRequest request,
+                          Model model) {
+        // Both lookups are cached; only a cache miss borrows a connection
+        if (notModified(request)) {
+            return null;
+        }
+        EntryPage<EntrySummary> page = getEntries(after, before);
+        model.addAttribute("entries", page.entries());
+        model.addAttribute("nextCursor", page.nextCursor());
+        model.addAttribute("prevCursor", page.prevCursor());
+        return "page-two";
+    }
+
+    /**
+     * Displays page two with every text entry and its JWT status, streamed from a database cursor.
+     * <p>
+     * Rows are rendered as they are read, so memory stays constant regardless of table size.
+     * The cursor is closed once the request (including view rendering) completes.
+     *
+     * @param model Spring MVC model
+     * @return view name "page-two"
+     */
+    @GetMapping("/all")
+    public String pageTwoAll(Model model) {
+        EntryStream<EntrySummary> entries = dataService.streamAllEntries();
+        RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+                EntryStream.class.getName(), entries::close, RequestAttributes.SCOPE_REQUEST);
+        model.addAttribute("entries", entries);
         return "page-two";
     }
 
+    /**
+     * Returns the full content of one entry as plain text, for the view modal.
+     * <p>
+     * Listings only carry a preview; the modal loads the rest on demand.
+     *
+     * @param id entry ID
+     * @return entry content, or 404 if the entry does not exist
+     */
+    @GetMapping("/entries/{id}/content")
+    public ResponseEntity<String> entryContent(@PathVariable("id") Long id) {
+        return dataService.findById(id)
+                .map(entry -> ResponseEntity.ok()
+                        .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                        .header("X-Content-Type-Options", "nosniff")
+                        .body(entry.getContent() != null ? entry.getContent() : ""))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Opens the live entry feed that patches the listing in place, see {@link EntryFeed}.
+     *
+     * @param lastEventId high-water mark of the last event received, sent by a reconnecting EventSource
+     * @param since highest entry ID on the rendered page, for the first connection
+     * @return event stream of entry changes
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<ResponseBodyEmitter> feed(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                                    @RequestParam(value = "since", required = false) Long since) {
+        ResponseBodyEmitter emitter = entryFeed.subscribe(lastEventId != null ? lastEventId : since);
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many live feed connections, try again shortly");
+        }
+        return ResponseEntity.ok()
+                .contentType(EntryFeed.EVENT_STREAM)
+                .cacheControl(CacheControl.noStore())
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
     /**
      * Handles text submission via SQL injection vulnerable method.
+     * <p>
+     * With write-behind enabled the same statement is queued for a group commit instead, and
+     * the request fails with 503 if the queue stays full.
      *
      * @param text user-submitted text
      * @return redirect to /page-two
      */
     @PostMapping("/submit")
     public String submitText(@RequestParam("text") String text) {
-        try {
-            save(text);
-        } catch (Exception e) {
-            safeSave("error",
-                    "This form controller is intentionally insecure. If you see this message you posted text "
-                            +"that mangled the construction of the SQL insert statement, and the CRS anomaly score likely "
-                            +"wasn't high enough to trigger a block."
-                            +" error was:"+e.getMessage()); //Tools.getStackTraceAsString(e));
-            log.error("error saving text entry", e);
+        if (submissionWriter.isEnabled()) {
+            if (!submissionWriter.submit(new TextSubmission(insertSql(text)))) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many submissions, try again shortly");
+            }
+            return "redirect:/page-two";
         }
+        requestConnection.autocommit(conn -> {
+            try {
+                save(conn, insertSql(text));
+            } catch (SQLException | RuntimeException e) {
+                // Autocommit left no transaction to abort, so the same connection can store the error entry
+                safeSave(conn, "error", failureMessage(e));
+                log.error("error saving text entry", e);
+            }
+            return null;
+        });
+        eventPublisher.publishEvent(EntryChangeEvent.appended());
         return "redirect:/page-two";
     }
 
@@ -76,107 +197,102 @@ public class PageTwoController {
     @PostMapping("/delete")
     public String deleteEntry(@RequestParam("id") Long id) {
         deleteById(id);
+        eventPublisher.publishEvent(EntryChangeEvent.deleted(id));
         return "redirect:/page-two";
     }
 
     /**
-     * Saves text using vulnerable string concatenation (SQL injection risk).
+     * Builds the insert statement by vulnerable string concatenation (SQL injection risk).
      *
      * @param text user-submitted text
-     * @throws Exception if save fails
+     * @return SQL insert statement
      */
-    private void save(String text) throws Exception {
+    private String insertSql(String text) {
         String ts = Tools.now();
-        String sql = "INSERT INTO text_entries (content, created_at, updated_at) VALUES ('" + text + "', '" + ts + "', '" + ts + "')";
+        // JWT status goes ahead of the user text so the injectable part of the statement keeps its shape
+        String jwt = jwtVerificationService.statusOf(text).toSqlValues();
+        String sql = "INSERT INTO text_entries (jwt_verified, jwt_kid, jwt_key_set, jwt_expires_at, content, created_at, updated_at) " +
+                "VALUES (" + jwt + ", '" + text + "', '" + ts + "', '" + ts + "')";
         log.info("saveEntry for: {}", sql);
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement()) {
+        return sql;
+    }
+
+    /**
+     * Executes a concatenated insert statement as-is.
+     *
+     * @param conn connection to use
+     * @param sql statement from {@link #insertSql(String)}
+     * @throws SQLException if the statement fails
+     */
+    private void save(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(sql);
         }
     }
 
     /**
-     * Saves text securely using prepared statements.
+     * Saves text securely using prepared statements on the given connection.
      *
+     * @param conn connection to use
      * @param title entry title
      * @param content entry content
+     * @throws SQLException if the insert fails
      */
-    private void safeSave(String title, String content) {
-        String sql = "INSERT INTO text_entries (title, content, created_at, updated_at) VALUES (?, ?, ?, ?)";
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private void safeSave(Connection conn, String title, String content) throws SQLException {
+        String sql = "INSERT INTO text_entries (title, content, created_at, updated_at, jwt_verified, jwt_kid, jwt_key_set, jwt_expires_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        JwtStatus jwt = jwtVerificationService.statusOf(content);
 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, title);
             pstmt.setString(2, content);
             pstmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
             pstmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            pstmt.setBoolean(5, jwt.verified());
+            pstmt.setString(6, jwt.kid());
+            pstmt.setString(7, jwt.keySet());
+            pstmt.setTimestamp(8, jwt.expiresAtTimestamp());
             pstmt.executeUpdate();
-
-        } catch (SQLException e) {
-            throw new RuntimeException("Error saving text entry", e);
         }
     }
 
     /**
-     * Retrieves all text entries and validates JWT tokens.
+     * Builds the entry stored in place of a submission whose insert failed.
      *
-     * @return list of all {@link TextEntry} objects with JWT validation
+     * @param e error raised by the insert
+     * @return explanatory entry content
      */
-    private List<TextEntry> getAllEntries() {
-        List<TextEntry> entries = new ArrayList<>();
-        String sql = "SELECT id, title, content, created_at, updated_at FROM text_entries ORDER BY created_at DESC";
-
-        // Create table if it doesn't exist
-        createTableIfNotExists();
-
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                TextEntry entry = TextEntry.builder()
-                        .id(rs.getLong("id"))
-                        .title(rs.getString("title"))
-                        .content(rs.getString("content"))
-                        .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
-                        .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
-                        .build();
-
-                // Validate JWT signature if content appears to be a JWT token
-                if (entry.getContent() != null && entry.getContent().trim().matches("^[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+$")) {
-                    entry.setJwtVerified(Tools.validateJwtSignature(entry.getContent().trim()));
-                }
-
-                entries.add(entry);
-            }
-
-        } catch (SQLException e) {
-            throw new RuntimeException("Error retrieving text entries", e);
-        }
-
-        return entries;
+    private static String failureMessage(Exception e) {
+        return "This form controller is intentionally insecure. If you see this message you posted text "
+                +"that mangled the construction of the SQL insert statement, and the CRS anomaly score likely "
+                +"wasn't high enough to trigger a block."
+                +" error was:"+e.getMessage(); //Tools.getStackTraceAsString(e));
     }
 
     /**
-     * Creates the text_entries table if it doesn't exist.
+     * Answers a conditional GET from the entry set version alone, before any entries are read.
+     * <p>
+     * The page sits behind login, so it may only be cached privately and is always revalidated.
+     *
+     * @param request current request
+     * @return true if a 304 Not Modified response was sent
      */
-    private void createTableIfNotExists() {
-        String sql = "CREATE TABLE IF NOT EXISTS text_entries (" +
-                "id SERIAL PRIMARY KEY, " +
-                "title TEXT NOT NULL, " +
-                "content TEXT, " +
-                "created_at TIMESTAMP NOT NULL, " +
-                "updated_at TIMESTAMP NOT NULL)";
-
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            stmt.execute(sql);
+    private boolean notModified(ServletWebRequest request) {
+        EntrySetVersion version = dataService.findEntrySetVersion();
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        return request.checkNotModified(version.etag(), version.lastModified());
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Error creating table", e);
-        }
+    /**
+     * Retrieves one keyset-paginated page of text entries with their stored JWT status.
+     *
+     * @param after cursor for paging to older entries, may be null
+     * @param before cursor for paging back to newer entries, may be null
+     * @return page of {@link EntrySummary} objects with JWT status, newest first
+     */
+    private EntryPage<EntrySummary> getEntries(String after, String before) {
+        // JWT status is stored with each row, so this is a plain read
+        return dataService.findSummaryPage(after, before, pageSize);
     }
 
     /**
@@ -187,14 +303,35 @@ public class PageTwoController {
     private void deleteById(Long id) {
         String sql = "DELETE FROM text_entries WHERE id = ?";
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        requestConnection.execute(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, id);
+                return pstmt.executeUpdate();
+            }
+        });
+    }
 
-            pstmt.setLong(1, id);
-            pstmt.executeUpdate();
+    /**
+     * Queued form submission: the same concatenated insert and the same error recovery,
+     * executed later by the {@link SubmissionWriter}.
+     */
+    private class TextSubmission implements SubmissionWriter.Submission {
+
+        private final String sql;
+
+        TextSubmission(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public void write(Connection conn) throws SQLException {
+            save(conn, sql);
+        }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Error deleting text entry", e);
+        @Override
+        public void recover(Connection conn, Exception failure) throws SQLException {
+            safeSave(conn, "error", failureMessage(failure));
+            log.error("error saving text entry", failure);
         }
     }
 }
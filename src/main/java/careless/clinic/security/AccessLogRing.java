@@ -0,0 +1,81 @@
+package careless.clinic.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Producers claim a slot with a CAS on the tail and publish into it; {@link #offer} never
+ * blocks and fails when the ring is full. Only one thread may call {@link #poll}.
+ *
+ * @param <T> element type
+ * @author jay
+ * @see AccessLogWriter
+ */
+final class AccessLogRing<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity requested capacity, rounded up to a power of two
+     */
+    AccessLogRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds an element if there is room.
+     *
+     * @param element element to add, not null
+     * @return false if the ring is full
+     */
+    boolean offer(T element) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.set((int) claimed & mask, element);
+        return true;
+    }
+
+    /**
+     * Removes the oldest published element. Single consumer only.
+     *
+     * @return oldest element, or null if none is ready
+     */
+    T poll() {
+        long current = head;
+        int index = (int) current & mask;
+        T element = slots.get(index);
+        if (element == null) {
+            // Empty, or the producer that claimed this slot has not published yet
+            return null;
+        }
+        slots.lazySet(index, null);
+        head = current + 1;
+        return element;
+    }
+
+    /**
+     * @return approximate number of buffered elements
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * @return ring capacity
+     */
+    int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,138 @@
+package careless.clinic.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer for structured access log records.
+ * <p>
+ * Request threads hand records to a lock-free {@link AccessLogRing} and return immediately;
+ * a single writer thread serializes each record to one JSON line on the
+ * {@code careless.clinic.access} logger. When the ring is full the record is dropped and
+ * counted in {@code clinic.access.log.dropped}, so logging never slows a request down.
+ *
+ * @author jay
+ * @see RequestHeaderLoggerFilter
+ */
+@Slf4j
+@Component
+public class AccessLogWriter {
+
+    /**
+     * One request, as logged.
+     *
+     * @param timestamp  request start
+     * @param method     HTTP method
+     * @param uri        request URI without query string
+     * @param query      query string, may be null
+     * @param status     response status
+     * @param durationMs time spent in the filter chain
+     * @param remoteAddr client address
+     * @param headers    selected request headers
+     */
+    public record AccessLogRecord(Instant timestamp, String method, String uri, String query, int status,
+                                  double durationMs, String remoteAddr, Map<String, String> headers) {
+    }
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("careless.clinic.access");
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AccessLogRing<AccessLogRecord> ring;
+    private final ObjectMapper objectMapper;
+    private final Counter dropped;
+    private final Counter written;
+    private volatile boolean running;
+    private Thread writer;
+
+    public AccessLogWriter(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${clinic.access-log.buffer-size:8192}") int bufferSize) {
+        this.ring = new AccessLogRing<>(bufferSize);
+        this.objectMapper = objectMapper;
+        this.dropped = Counter.builder("clinic.access.log.dropped")
+                .description("Access log records dropped because the buffer was full")
+                .register(meterRegistry);
+        this.written = Counter.builder("clinic.access.log.written")
+                .description("Access log records written")
+                .register(meterRegistry);
+        Gauge.builder("clinic.access.log.buffered", ring, AccessLogRing::size)
+                .description("Access log records waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = Thread.ofPlatform().name("access-log-writer").daemon(true).start(this::drainLoop);
+        log.info("Access log writer started with buffer size {}", ring.capacity());
+    }
+
+    /**
+     * Stops the writer after flushing buffered records.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a record without blocking.
+     *
+     * @param record record to write
+     * @return false if the buffer was full and the record was dropped
+     */
+    public boolean submit(AccessLogRecord record) {
+        if (ring.offer(record)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void drainLoop() {
+        while (running || ring.size() > 0) {
+            AccessLogRecord record = ring.poll();
+            if (record == null) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            write(record);
+        }
+    }
+
+    private void write(AccessLogRecord record) {
+        try {
+            ACCESS_LOG.info(objectMapper.writeValueAsString(record));
+            written.increment();
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.debug("Error writing access log record: {}", e.getMessage());
+        }
+    }
+}
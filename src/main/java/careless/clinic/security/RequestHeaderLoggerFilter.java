@@ -2,29 +2,108 @@ package careless.clinic.security;
 
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.time.Instant;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
+/**
+ * Access log stage: one structured record per sampled request, written off the request thread.
+ * <p>
+ * Successful requests are sampled at {@code clinic.access-log.sample-rate} and 4xx/5xx responses
+ * at {@code clinic.access-log.error-sample-rate}. Headers are included if they are on the
+ * allowlist (empty = all headers) and not on the denylist.
+ *
+ * @author jay
+ * @see AccessLogWriter
+ */
 @Slf4j
 @Component
 public class RequestHeaderLoggerFilter implements Filter {
 
-    public RequestHeaderLoggerFilter() {
-        log.info("RequestHeaderLoggerFilter initialized");
+    private final AccessLogWriter accessLogWriter;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final double errorSampleRate;
+    private final Set<String> headerAllowlist;
+    private final Set<String> headerDenylist;
+
+    public RequestHeaderLoggerFilter(AccessLogWriter accessLogWriter,
+                                     @Value("${clinic.access-log.enabled:true}") boolean enabled,
+                                     @Value("${clinic.access-log.sample-rate:1.0}") double sampleRate,
+                                     @Value("${clinic.access-log.error-sample-rate:1.0}") double errorSampleRate,
+                                     @Value("${clinic.access-log.header-allowlist:}") List<String> headerAllowlist,
+                                     @Value("${clinic.access-log.header-denylist:authorization,proxy-authorization,cookie}") List<String> headerDenylist) {
+        this.accessLogWriter = accessLogWriter;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.errorSampleRate = errorSampleRate;
+        this.headerAllowlist = normalize(headerAllowlist);
+        this.headerDenylist = normalize(headerDenylist);
+        log.info("RequestHeaderLoggerFilter initialized - enabled: {}, sampleRate: {}, errorSampleRate: {}, allow: {}, deny: {}",
+                enabled, sampleRate, errorSampleRate, this.headerAllowlist, this.headerDenylist);
     }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
-        HttpServletRequest httpRequest = (HttpServletRequest) request;
-        log.warn("--- Incoming Request Headers ---");
-        Collections.list(httpRequest.getHeaderNames()).forEach(headerName ->
-                log.warn(headerName + ": " + httpRequest.getHeader(headerName))
-        );
-        log.warn("--- End Headers ---");
-        chain.doFilter(request, response);
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Instant start = Instant.now();
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : ((HttpServletResponse) response).getStatus();
+            double rate = status >= 400 ? errorSampleRate : sampleRate;
+            if (rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate) {
+                HttpServletRequest httpRequest = (HttpServletRequest) request;
+                accessLogWriter.submit(new AccessLogWriter.AccessLogRecord(
+                        start,
+                        httpRequest.getMethod(),
+                        httpRequest.getRequestURI(),
+                        httpRequest.getQueryString(),
+                        status,
+                        (System.nanoTime() - startNanos) / 1_000_000.0,
+                        httpRequest.getRemoteAddr(),
+                        selectedHeaders(httpRequest)));
+            }
+        }
+    }
+
+    private Map<String, String> selectedHeaders(HttpServletRequest request) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        Enumeration<String> names = request.getHeaderNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            String key = name.toLowerCase(Locale.ROOT);
+            if ((headerAllowlist.isEmpty() || headerAllowlist.contains(key)) && !headerDenylist.contains(key)) {
+                headers.put(key, request.getHeader(name));
+            }
+        }
+        return headers;
+    }
+
+    private static Set<String> normalize(List<String> names) {
+        return names.stream()
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
     }
 }
@@ -62,7 +62,7 @@ public class SecurityConfig {
         log.info("===> Configuring PUBLIC SecurityFilterChain <===");
 
         return http
-                .securityMatcher("/", "/index", "/index.html", "/page-one", "/public/**",
+                .securityMatcher("/", "/index", "/index.html", "/page-one", "/page-one/entries/**", "/page-one/feed", "/public/**",
                                "/css/**", "/js/**", "/images/**", "/error", "/favicon.ico")
                 .authorizeHttpRequests(authorize -> {
                     log.info("PUBLIC chain: Configuring permitAll() for all requests");
@@ -87,7 +87,7 @@ public class SecurityConfig {
         log.info("===> Configuring PROTECTED SecurityFilterChain with OAuth2 <===");
 
         return http
-                .securityMatcher( "/protected/**", "/private/**", "/page-two",
+                .securityMatcher( "/protected/**", "/private/**", "/page-two", "/page-two/all", "/page-two/entries/**", "/page-two/feed",
                                 "/oauth2/**", "/login/oauth2/**")
                 .authorizeHttpRequests(authorize -> {
                     log.info("PROTECTED chain: Configuring authorization rules");
@@ -0,0 +1,146 @@
+package careless.clinic.service.data;
+
+import careless.clinic.model.EntryDelta;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.ToLongFunction;
+
+/**
+ * Tracks which entries a reader of "rows above an ID" has seen, without losing rows that commit
+ * out of ID order.
+ * <p>
+ * IDs are drawn when a row is inserted but become visible only when its transaction commits, so
+ * a row can appear below the highest ID already read (a write-behind group holding IDs 100-600
+ * commits after a single insert took 601). Reads therefore start from a lower {@link #floor()}:
+ * every ID at or below it has been seen or will never commit. IDs seen above the floor are
+ * remembered, so each row is handed out once.
+ * <p>
+ * The floor moves up by checkpoint. After a complete pass has seen IDs up to {@code M} under a
+ * snapshot whose {@code xmax} was {@code X}, every ID up to {@code M} was drawn by a
+ * transaction below {@code X}. Once a later pass starts from a snapshot whose {@code xmin} is at
+ * least {@code X}, those transactions have all finished and their rows are read by that pass, so
+ * the floor can rise to {@code M}. A transaction that draws its ID just before it is assigned a
+ * transaction ID can slip through this window, which is microseconds wide.
+ * <p>
+ * A transaction left open for a long time holds the floor back. Once more than
+ * {@code maxTracked} IDs are remembered, the floor jumps to the highest ID seen, and a row
+ * committed below it later is missed.
+ * <p>
+ * Not thread-safe; owners use it from a single thread.
+ *
+ * @author jay
+ */
+@Slf4j
+public final class CommitWatermark {
+
+    /** IDs up to {@code maxId} are settled once no transaction below {@code xmax} is running */
+    private record Checkpoint(long maxId, long xmax) {
+    }
+
+    private final String name;
+    private final int maxTracked;
+    private final NavigableSet<Long> seen = new TreeSet<>();
+    private final Deque<Checkpoint> checkpoints = new ArrayDeque<>();
+    private long floor;
+    private long highest;
+
+    /**
+     * @param name owner name, for logging
+     * @param maxTracked IDs above the floor to remember before giving up on late rows
+     */
+    public CommitWatermark(String name, int maxTracked) {
+        this.name = name;
+        this.maxTracked = Math.max(1, maxTracked);
+    }
+
+    /**
+     * @return ID to read above; rows at or below it have all been seen
+     */
+    public long floor() {
+        return floor;
+    }
+
+    /**
+     * @return highest ID seen, for marking progress to clients
+     */
+    public long highest() {
+        return highest;
+    }
+
+    /**
+     * @return number of IDs remembered above the floor
+     */
+    public int tracked() {
+        return seen.size();
+    }
+
+    /**
+     * @param id entry ID
+     * @return true if the entry has been seen or is below the floor
+     */
+    public boolean isSeen(long id) {
+        return id <= floor || seen.contains(id);
+    }
+
+    /**
+     * Starts over from an ID, forgetting everything seen.
+     *
+     * @param id new floor and highest ID, usually the current maximum entry ID
+     */
+    public void reset(long id) {
+        floor = id;
+        highest = id;
+        seen.clear();
+        checkpoints.clear();
+    }
+
+    /**
+     * Picks the entries not seen yet out of one read and marks them as seen.
+     *
+     * @param <T> entry type
+     * @param entries entries read above {@link #floor()} or above an ID reached in the same pass
+     * @param id entry ID accessor
+     * @return entries not seen before, in read order
+     */
+    public <T> List<T> unseen(List<T> entries, ToLongFunction<T> id) {
+        List<T> fresh = new ArrayList<>(entries.size());
+        for (T entry : entries) {
+            long entryId = id.applyAsLong(entry);
+            if (entryId > floor && seen.add(entryId)) {
+                fresh.add(entry);
+                highest = Math.max(highest, entryId);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Records a pass that read every row above {@link #floor()}, possibly over several reads,
+     * and raises the floor as far as its snapshots allow.
+     *
+     * @param first first read of the pass
+     * @param last last read of the pass (the same as {@code first} for a single read)
+     */
+    public void passComplete(EntryDelta<?> first, EntryDelta<?> last) {
+        while (!checkpoints.isEmpty() && checkpoints.peekFirst().xmax() <= first.snapshotXmin()) {
+            floor = Math.max(floor, checkpoints.pollFirst().maxId());
+        }
+        seen.headSet(floor, true).clear();
+        Checkpoint latest = checkpoints.peekLast();
+        // An older checkpoint for the same ID settles sooner, so only new IDs add one
+        if (highest > floor && (latest == null || latest.maxId() < highest)) {
+            checkpoints.addLast(new Checkpoint(highest, last.snapshotXmax()));
+        }
+        if (seen.size() > maxTracked) {
+            log.warn("{}: {} entries above ID {} still unsettled, giving up on rows committed below ID {}",
+                    name, seen.size(), floor, highest);
+            reset(highest);
+        }
+    }
+}
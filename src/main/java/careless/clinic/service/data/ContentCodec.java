@@ -0,0 +1,188 @@
+package careless.clinic.service.data;
+
+import careless.clinic.model.EntrySummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Optional compression of large entry content, applied where the application writes content.
+ * <p>
+ * Compressed values are stored in the text column as {@code \u0001} + format version + base64
+ * of the payload. Version {@code 1} is raw deflate. Values without the marker are plain text, so
+ * old rows, rows written by raw SQL and rows below the threshold need no migration. A value that
+ * carries the marker but does not decode is returned unchanged.
+ * <p>
+ * Content search ({@code ILIKE}, trigram and full-text indexes) only sees plain rows; titles
+ * are never compressed. Listings cannot cut a compressed value in SQL, so content long enough to
+ * be compressed is written with a plain preview and its length alongside ({@link #previewOf}).
+ * <p>
+ * Meters: {@code clinic.entries.content.compression.ratio} (stored/original characters, 1 when
+ * compression did not pay off) and {@code clinic.entries.content.compressed}.
+ *
+ * @author jay
+ * @see ContentCodecConverter
+ */
+@Slf4j
+@Component
+public class ContentCodec {
+
+    static final char MARKER = '\u0001';
+    static final char VERSION_DEFLATE = '1';
+
+    /** Upper bound on decoded bytes: the content column holds 12032 characters of up to 4 bytes */
+    private static final int MAX_DECODED_BYTES = 12032 * 4;
+
+    private final boolean enabled;
+    private final int threshold;
+    private final double maxRatio;
+    private final int level;
+    private final DistributionSummary ratio;
+    private final Counter compressed;
+
+    public ContentCodec(MeterRegistry meterRegistry,
+                        @Value("${clinic.entries.compression.enabled:false}") boolean enabled,
+                        @Value("${clinic.entries.compression.threshold:1024}") int threshold,
+                        @Value("${clinic.entries.compression.max-ratio:0.8}") double maxRatio,
+                        @Value("${clinic.entries.compression.level:6}") int level) {
+        this.enabled = enabled;
+        this.threshold = Math.max(1, threshold);
+        this.maxRatio = maxRatio;
+        this.level = level;
+        this.ratio = DistributionSummary.builder("clinic.entries.content.compression.ratio")
+                .description("Stored size over original size of content above the compression threshold")
+                .register(meterRegistry);
+        this.compressed = Counter.builder("clinic.entries.content.compressed")
+                .description("Content values stored compressed")
+                .register(meterRegistry);
+        log.info("Content compression {} - threshold: {} chars, maxRatio: {}, level: {}",
+                enabled ? "enabled" : "disabled", this.threshold, maxRatio, level);
+    }
+
+    /**
+     * @return true if {@link #encode} compresses content
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return minimum content length considered for compression
+     */
+    public int threshold() {
+        return threshold;
+    }
+
+    /**
+     * Encodes content for storage, compressed if enabled, long enough and worth it.
+     *
+     * @param content plain content, may be null
+     * @return value to store
+     */
+    public String encode(String content) {
+        if (!enabled || content == null || content.length() < threshold || isEncoded(content)) {
+            return content;
+        }
+        String encoded = MARKER + String.valueOf(VERSION_DEFLATE)
+                + Base64.getEncoder().withoutPadding().encodeToString(deflate(content.getBytes(StandardCharsets.UTF_8)));
+        double stored = (double) encoded.length() / content.length();
+        if (stored > maxRatio) {
+            ratio.record(1.0);
+            return content;
+        }
+        ratio.record(stored);
+        compressed.increment();
+        return encoded;
+    }
+
+    /**
+     * Listing preview to store next to content that may be stored compressed.
+     *
+     * @param content plain content, may be null
+     * @return leading {@value EntrySummary#PREVIEW_LENGTH} characters, or null if the content is
+     *         always stored plain
+     */
+    public String previewOf(String content) {
+        if (!enabled || content == null || content.length() < threshold) {
+            return null;
+        }
+        return content.substring(0, Math.min(content.length(), EntrySummary.PREVIEW_LENGTH));
+    }
+
+    /**
+     * Decodes a stored value.
+     *
+     * @param stored value as read from the database, may be null
+     * @return plain content
+     */
+    public static String decode(String stored) {
+        if (!isEncoded(stored)) {
+            return stored;
+        }
+        try {
+            if (stored.charAt(1) == VERSION_DEFLATE) {
+                byte[] payload = Base64.getDecoder().decode(stored.substring(2));
+                return new String(inflate(payload), StandardCharsets.UTF_8);
+            }
+        } catch (IllegalArgumentException | DataFormatException e) {
+            log.debug("Content starts with the compression marker but does not decode: {}", e.getMessage());
+        }
+        return stored;
+    }
+
+    /**
+     * @param stored value as read from the database, may be null
+     * @return true if the value carries the compression marker
+     */
+    public static boolean isEncoded(String stored) {
+        return stored != null && stored.length() > 2 && stored.charAt(0) == MARKER;
+    }
+
+    private byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated deflate stream");
+                }
+                if (out.size() + n > MAX_DECODED_BYTES) {
+                    throw new DataFormatException("Decoded content exceeds " + MAX_DECODED_BYTES + " bytes");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
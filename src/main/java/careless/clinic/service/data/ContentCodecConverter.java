@@ -0,0 +1,32 @@
+package careless.clinic.service.data;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * JPA side of the {@link ContentCodec}: compresses {@code TextEntry.content} on write and
+ * decompresses it on load.
+ * <p>
+ * Instantiated through Spring's Hibernate bean container, which injects the codec.
+ *
+ * @author jay
+ */
+@Converter
+public class ContentCodecConverter implements AttributeConverter<String, String> {
+
+    private final ContentCodec codec;
+
+    public ContentCodecConverter(ContentCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public String convertToDatabaseColumn(String content) {
+        return codec.encode(content);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String stored) {
+        return ContentCodec.decode(stored);
+    }
+}
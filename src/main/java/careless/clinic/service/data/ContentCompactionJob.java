@@ -0,0 +1,58 @@
+package careless.clinic.service.data;
+
+import careless.clinic.model.TextEntry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Background job that compresses large content written without the {@link ContentCodec}.
+ * <p>
+ * Form submissions insert content through concatenated SQL, which has to stay as it is, so
+ * their rows are compressed here afterwards. Each run continues from the highest ID it has
+ * seen; after a restart the table is scanned once more from the start.
+ *
+ * @author jay
+ * @see DataService#findCompressibleContentAfter(long, int, int)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "clinic.entries.compression.enabled", havingValue = "true")
+public class ContentCompactionJob {
+
+    private final DataService dataService;
+    private final ContentCodec contentCodec;
+
+    @Value("${clinic.entries.compression.compact-batch-size:500}")
+    private int batchSize;
+
+    /** Highest entry ID already considered */
+    private long compactedThroughId;
+
+    /**
+     * Compresses eligible rows above the last ID seen.
+     */
+    @Scheduled(initialDelayString = "${clinic.entries.compression.compact-initial-delay:30s}",
+               fixedDelayString = "${clinic.entries.compression.compact-interval:1m}")
+    public void run() {
+        int total = 0;
+        while (true) {
+            List<TextEntry> batch = dataService.findCompressibleContentAfter(
+                    compactedThroughId, contentCodec.threshold(), batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            total += dataService.compressContent(batch);
+            compactedThroughId = batch.get(batch.size() - 1).getId();
+        }
+        if (total > 0) {
+            log.info("Compressed content of {} entries (through id {})", total, compactedThroughId);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package careless.clinic.service.data;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link DataService} method as a timed data operation.
+ * <p>
+ * Each call is recorded in the {@code clinic.data.operation} timer, tagged with the method name,
+ * access path and outcome, and the size of its result in the {@code clinic.data.rows} summary.
+ *
+ * @author jay
+ * @see DataOperationMetrics
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DataOperation {
+
+    /**
+     * @return how the operation reaches the database
+     */
+    AccessPath value();
+
+    /**
+     * @return false if the result is not a row count or collection of rows
+     */
+    boolean recordRows() default true;
+
+    /**
+     * Database access path, used as the {@code path} tag.
+     */
+    enum AccessPath {
+        /** Spring Data JPA repository */
+        JPA,
+        /** JdbcTemplate or plain JDBC with prepared statements */
+        JDBC,
+        /** Unsanitized SQL supplied by the caller */
+        RAW,
+        /** PostgreSQL COPY protocol */
+        COPY
+    }
+}
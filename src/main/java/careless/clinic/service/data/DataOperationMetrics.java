@@ -0,0 +1,119 @@
+package careless.clinic.service.data;
+
+import careless.clinic.model.EntryDelta;
+import careless.clinic.model.EntryPage;
+import careless.clinic.model.SearchPage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Records latency and result size of every {@link DataOperation} method.
+ * <p>
+ * Meters:
+ * <ul>
+ *   <li>{@code clinic.data.operation} timer - tags {@code operation}, {@code path},
+ *       {@code outcome} (success/error) and {@code exception}</li>
+ *   <li>{@code clinic.data.rows} summary - rows returned or affected, tags {@code operation}, {@code path}</li>
+ * </ul>
+ * Percentiles and histogram buckets are configured under {@code management.metrics.distribution}.
+ * For {@link EntryStream} results only the time to open the cursor is measured.
+ *
+ * @author jay
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class DataOperationMetrics {
+
+    private static final String TIMER = "clinic.data.operation";
+    private static final String ROWS = "clinic.data.rows";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Times a data operation and records its row count.
+     *
+     * @param joinPoint intercepted call
+     * @param operation operation annotation
+     * @return result of the call
+     * @throws Throwable whatever the call throws
+     */
+    @Around("@annotation(operation)")
+    public Object record(ProceedingJoinPoint joinPoint, DataOperation operation) throws Throwable {
+        String name = joinPoint.getSignature().getName();
+        String path = operation.value().name().toLowerCase(Locale.ROOT);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Object result = joinPoint.proceed();
+            sample.stop(timer(name, path, "success", "none"));
+            long rows = operation.recordRows() ? rowCount(result) : -1;
+            if (rows >= 0) {
+                DistributionSummary.builder(ROWS)
+                        .description("Rows returned or affected per data operation")
+                        .baseUnit("rows")
+                        .tags("operation", name, "path", path)
+                        .register(meterRegistry)
+                        .record(rows);
+            }
+            return result;
+        } catch (Throwable e) {
+            sample.stop(timer(name, path, "error", e.getClass().getSimpleName()));
+            throw e;
+        }
+    }
+
+    private Timer timer(String operation, String path, String outcome, String exception) {
+        return Timer.builder(TIMER)
+                .description("Latency of DataService operations")
+                .tags("operation", operation, "path", path, "outcome", outcome, "exception", exception)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Derives the number of rows from an operation result.
+     *
+     * @param result operation result
+     * @return row count, or -1 if the result does not carry one
+     */
+    private static long rowCount(Object result) {
+        if (result instanceof Collection<?> rows) {
+            return rows.size();
+        }
+        if (result instanceof Map<?, ?>) {
+            return 1;
+        }
+        if (result instanceof Optional<?> row) {
+            return row.isPresent() ? 1 : 0;
+        }
+        if (result instanceof EntryPage<?> page) {
+            return page.entries().size();
+        }
+        if (result instanceof EntryDelta<?> delta) {
+            return delta.entries().size();
+        }
+        if (result instanceof SearchPage page) {
+            return page.hits().size();
+        }
+        if (result instanceof ImportProgress progress) {
+            return progress.imported();
+        }
+        if (result instanceof RawQuerySummary summary) {
+            return summary.rows();
+        }
+        if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        }
+        return -1;
+    }
+}
@@ -1,22 +1,70 @@
 package careless.clinic.service.data;
 
+import careless.clinic.datasource.PreferReplica;
+import careless.clinic.datasource.RequestConnection;
+import careless.clinic.model.EntryCursor;
+import careless.clinic.model.EntryDelta;
+import careless.clinic.model.EntryPage;
+import careless.clinic.model.EntrySetVersion;
+import careless.clinic.model.EntrySummary;
+import careless.clinic.model.SearchHit;
+import careless.clinic.model.SearchPage;
 import careless.clinic.model.TextEntry;
+import careless.clinic.service.data.DataOperation.AccessPath;
+import careless.clinic.service.jwt.JwtStatus;
+import careless.clinic.service.jwt.JwtVerificationService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Service providing both JPA and JDBC access to {@link TextEntry} data.
  * <p>
+ * Listing pages returned by {@link #findSummaryPage} are served from a bounded cache that every
+ * {@link EntryChangeEvent} invalidates; hit rate and load time are published as {@code cache.*}
+ * metrics tagged {@code cache=entries.page}.
+ * <p>
+ * Read-only lookups run in read-only transactions or carry {@link PreferReplica}, so with read
+ * replicas configured they are served by a replica. Listing pages and the entry set version
+ * stay on the primary: they are cached, and a lagging replica would pin stale pages in the cache.
+ * <p>
  * WARNING: Contains intentionally vulnerable raw SQL methods for educational purposes.
  *
  * @author jay
@@ -28,8 +76,81 @@ import java.util.Optional;
 @Slf4j
 public class DataService {
 
+    /** Upper bound on the number of entries returned for a single page */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /** Deepest ranked search page served; relevance ordering makes deep offsets costly */
+    public static final int MAX_SEARCH_PAGES = 100;
+
+    /**
+     * Compressed content is not read: its stored preview and length are. Rows compressed before
+     * those columns existed are read whole (length -1) and cut after decoding.
+     */
+    private static final String SUMMARY_COLUMNS = "id, title, " +
+            "CASE WHEN left(content, 1) = chr(1) THEN coalesce(content_preview, content) " +
+            "ELSE left(content, " + EntrySummary.PREVIEW_LENGTH + ") END AS preview, " +
+            "CASE WHEN left(content, 1) = chr(1) THEN coalesce(content_length, -1) ELSE length(content) END AS content_length, " +
+            "created_at, updated_at, " +
+            "(jwt_verified AND (jwt_expires_at IS NULL OR jwt_expires_at > now())) AS jwt_verified";
+
+    /** Columns mapped by {@link TextEntryRowMapper} */
+    private static final String ENTRY_COLUMNS = "id, title, content, created_at, updated_at, " +
+            "jwt_verified, jwt_kid, jwt_key_set, jwt_expires_at";
+
     private final TextEntryRepository textEntryRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final JwtVerificationService jwtVerificationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final ContentCodec contentCodec;
+    private final RequestConnection requestConnection;
+
+    /** Key of a cached page; the generation changes on every write, so stale loads are never read */
+    private record PageKey(long generation, String after, String before, int limit) {
+    }
+
+    /** Cached entry pages, built in {@link #initEntryPageCache} */
+    private Cache<PageKey, EntryPage<EntrySummary>> entryPageCache;
+    private final AtomicLong entryPageGeneration = new AtomicLong();
+
+    /** Entry set validator together with the generation and time it was computed at */
+    private record CachedVersion(long generation, long loadedAtNanos, EntrySetVersion version) {
+    }
+
+    private final long instanceId = System.currentTimeMillis();
+    private volatile Instant lastEntryChange = Instant.now();
+    private volatile CachedVersion entrySetVersion;
+
+    /** Maximum number of cached entry pages (0 disables the cache) */
+    @Value("${clinic.entries.cache.maximum-size:1000}")
+    private long entryPageCacheSize;
+
+    /** Upper bound on staleness for writes that bypass the application */
+    @Value("${clinic.entries.cache.ttl:60s}")
+    private Duration entryPageCacheTtl;
+
+    /** Rows fetched per round trip when streaming entries through a server-side cursor */
+    @Value("${clinic.entries.stream-fetch-size:500}")
+    private int streamFetchSize;
+
+    /** Rows per transaction when bulk importing */
+    @Value("${clinic.import.chunk-size:50000}")
+    private int importChunkSize;
+
+    /**
+     * Builds the entry page cache and registers its metrics.
+     */
+    @PostConstruct
+    void initEntryPageCache() {
+        entryPageCache = Caffeine.newBuilder()
+                .maximumSize(entryPageCacheSize)
+                .expireAfterWrite(entryPageCacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entryPageCache, "entries.page");
+        log.info("Entry page cache configured - maximumSize: {}, ttl: {}", entryPageCacheSize, entryPageCacheTtl);
+    }
 
     // ==================== JPA Repository Methods ====================
 
@@ -39,10 +160,15 @@ public class DataService {
      * @param entry text entry to save
      * @return saved text entry
      */
+    @DataOperation(AccessPath.JPA)
     @Transactional
     public TextEntry saveEntry(TextEntry entry) {
         log.debug("Saving TextEntry via JPA: {}", entry);
-        return textEntryRepository.save(entry);
+        applyJwtStatus(entry, jwtVerificationService.statusOf(entry.getContent()));
+        applyContentPreview(entry);
+        TextEntry saved = textEntryRepository.save(entry);
+        eventPublisher.publishEvent(EntryChangeEvent.saved(saved));
+        return saved;
     }
 
     /**
@@ -51,6 +177,8 @@ public class DataService {
      * @param id entry ID
      * @return optional containing entry if found
      */
+    @DataOperation(AccessPath.JPA)
+    @Transactional(readOnly = true)
     public Optional<TextEntry> findById(Long id) {
         log.debug("Finding TextEntry by id via JPA: {}", id);
         return textEntryRepository.findById(id);
@@ -61,17 +189,202 @@ public class DataService {
      *
      * @return list of all entries
      */
+    @DataOperation(AccessPath.JPA)
+    @Transactional(readOnly = true)
     public List<TextEntry> findAll() {
         log.debug("Finding all TextEntries via JPA");
         return textEntryRepository.findAll();
     }
 
+    /**
+     * Retrieves one keyset page of entry summaries for listings, without the full content.
+     * <p>
+     * Pages use keyset pagination on {@code (created_at, id)}: pass {@code after} to move to
+     * older entries and {@code before} to move back to newer ones. With neither cursor (or a
+     * malformed one) the newest page is returned. Pages are served from the entry page cache until
+     * the next write; only a miss borrows a connection, for the page queries together.
+     *
+     * @param after cursor of the last entry on the previous page, may be null
+     * @param before cursor of the first entry on the following page, may be null
+     * @param size requested page size (clamped to 1..{@value #MAX_PAGE_SIZE})
+     * @return page of entry summaries, newest first
+     */
+    @DataOperation(AccessPath.JDBC)
+    public EntryPage<EntrySummary> findSummaryPage(String after, String before, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        PageKey key = new PageKey(entryPageGeneration.get(), after, before, limit);
+        return entryPageCache.get(key, k -> requestConnection.call(
+                () -> keysetPage(k.after(), k.before(), k.limit(), summaryQueries, EntryCursor::of)));
+    }
+
+    /**
+     * Finds entry summaries above an ID, in ID order, for the live entry feed.
+     * <p>
+     * Reads the primary, as it runs right after a write. The snapshot bounds returned with the
+     * rows let the caller catch rows that commit out of ID order, see {@link CommitWatermark}.
+     *
+     * @param afterId exclusive lower ID bound
+     * @param limit maximum number of summaries to return
+     * @return entry summaries, lowest ID first, with the bounds of the snapshot that read them
+     */
+    @DataOperation(AccessPath.JDBC)
+    public EntryDelta<EntrySummary> findSummariesAfter(long afterId, int limit) {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM text_entries WHERE id > ? ORDER BY id LIMIT ?";
+        return queryDelta(sql, new EntrySummaryRowMapper(), afterId, limit);
+    }
+
+    /**
+     * Runs an entry query together with the bounds of its snapshot, in one statement so both
+     * come from the same snapshot.
+     *
+     * @param <T> entry type
+     * @param sql entry query, selecting an {@code id} column
+     * @param rowMapper entry mapper
+     * @param args query arguments
+     * @return entries in query order, with the snapshot bounds
+     */
+    private <T> EntryDelta<T> queryDelta(String sql, RowMapper<T> rowMapper, Object... args) {
+        String deltaSql = "SELECT snap.*, e.* FROM (SELECT " +
+                "pg_snapshot_xmin(pg_current_snapshot())::text::bigint AS snapshot_xmin, " +
+                "pg_snapshot_xmax(pg_current_snapshot())::text::bigint AS snapshot_xmax) snap " +
+                "LEFT JOIN (" + sql + ") e ON true ORDER BY e.id";
+        return jdbcTemplate.query(deltaSql, rs -> {
+            List<T> entries = new ArrayList<>();
+            long xmin = 0;
+            long xmax = 0;
+            while (rs.next()) {
+                xmin = rs.getLong("snapshot_xmin");
+                xmax = rs.getLong("snapshot_xmax");
+                // No entries: the snapshot row comes back alone
+                if (rs.getObject("id") != null) {
+                    entries.add(rowMapper.mapRow(rs, entries.size()));
+                }
+            }
+            return new EntryDelta<>(entries, xmin, xmax);
+        }, args);
+    }
+
+    /**
+     * @return highest entry ID, or 0 if the table is empty
+     */
+    @DataOperation(value = AccessPath.JDBC, recordRows = false)
+    public long findMaxEntryId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) FROM text_entries", Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    /**
+     * Drops every cached entry page once the write that caused the event has committed.
+     *
+     * @param event change event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChange(EntryChangeEvent event) {
+        invalidateEntryPages();
+    }
+
+    /**
+     * Drops every cached entry page. Loads still in flight store under the old generation,
+     * where no reader will find them.
+     */
+    private void invalidateEntryPages() {
+        lastEntryChange = Instant.now();
+        entryPageGeneration.incrementAndGet();
+        entryPageCache.invalidateAll();
+    }
+
+    /**
+     * Returns the validator of the entry set for conditional GETs.
+     * <p>
+     * Computed with one aggregate query and then reused until the next write (or the entry page
+     * cache TTL, for writes made outside the application).
+     *
+     * @return current entry set version
+     */
+    @DataOperation(value = AccessPath.JDBC, recordRows = false)
+    public EntrySetVersion findEntrySetVersion() {
+        long generation = entryPageGeneration.get();
+        CachedVersion cached = entrySetVersion;
+        if (cached != null && cached.generation() == generation
+                && System.nanoTime() - cached.loadedAtNanos() < entryPageCacheTtl.toNanos()) {
+            return cached.version();
+        }
+
+        EntrySetVersion version = jdbcTemplate.queryForObject(
+                "SELECT count(*), max(updated_at) FROM text_entries",
+                (rs, rowNum) -> {
+                    Timestamp lastUpdated = rs.getTimestamp(2);
+                    return new EntrySetVersion(rs.getLong(1), lastUpdated != null ? lastUpdated.toInstant() : null,
+                            generation, lastEntryChange, instanceId);
+                });
+        entrySetVersion = new CachedVersion(generation, System.nanoTime(), version);
+        return version;
+    }
+
+    /**
+     * Keyset page queries over one row type, see {@link #keysetPage}.
+     *
+     * @param <T> row type
+     */
+    private interface KeysetQueries<T> {
+
+        /** Newest rows, newest first */
+        List<T> first(int limit);
+
+        /** Rows older than the cursor, newest first */
+        List<T> olderThan(EntryCursor cursor, int limit);
+
+        /** Rows newer than the cursor, oldest (closest to the cursor) first */
+        List<T> newerThan(EntryCursor cursor, int limit);
+    }
+
+    /**
+     * Reads one keyset page, newest first, with cursors to the neighbouring pages.
+     *
+     * @param after cursor of the last entry on the previous page, may be null
+     * @param before cursor of the first entry on the following page, may be null
+     * @param limit page size, already clamped
+     * @param queries page queries
+     * @param cursorOf cursor of a row
+     * @return page of rows, newest first
+     */
+    private static <T> EntryPage<T> keysetPage(String after, String before, int limit,
+                                               KeysetQueries<T> queries, Function<T, EntryCursor> cursorOf) {
+        EntryCursor afterCursor = EntryCursor.decode(after);
+        EntryCursor beforeCursor = afterCursor == null ? EntryCursor.decode(before) : null;
+        log.debug("Finding entry page: after={}, before={}, size={}", afterCursor, beforeCursor, limit);
+
+        if (beforeCursor != null) {
+            List<T> rows = queries.newerThan(beforeCursor, limit + 1);
+            if (!rows.isEmpty()) {
+                boolean hasNewer = rows.size() > limit;
+                List<T> entries = new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+                Collections.reverse(entries);
+                return new EntryPage<>(entries,
+                        cursorOf.apply(entries.get(entries.size() - 1)).encode(),
+                        hasNewer ? cursorOf.apply(entries.get(0)).encode() : null);
+            }
+            // Nothing newer left (entries deleted meanwhile): fall back to the first page
+        }
+
+        List<T> rows = afterCursor == null
+                ? queries.first(limit + 1)
+                : queries.olderThan(afterCursor, limit + 1);
+        boolean hasOlder = rows.size() > limit;
+        List<T> entries = new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+        return new EntryPage<>(entries,
+                hasOlder ? cursorOf.apply(entries.get(entries.size() - 1)).encode() : null,
+                afterCursor != null && !entries.isEmpty() ? cursorOf.apply(entries.get(0)).encode() : null);
+    }
+
     /**
      * Searches entries by title or content using JPA repository.
      *
      * @param searchTerm search term
      * @return matching entries
      */
+    @DataOperation(AccessPath.JPA)
+    @Transactional(readOnly = true)
     public List<TextEntry> searchByTitleOrContent(String searchTerm) {
         log.debug("Searching TextEntries by title or content via JPA: {}", searchTerm);
         return textEntryRepository.searchByTitleOrContent(searchTerm);
@@ -82,10 +395,12 @@ public class DataService {
      *
      * @param id entry ID to delete
      */
+    @DataOperation(AccessPath.JPA)
     @Transactional
     public void deleteById(Long id) {
         log.debug("Deleting TextEntry by id via JPA: {}", id);
         textEntryRepository.deleteById(id);
+        eventPublisher.publishEvent(EntryChangeEvent.deleted(id));
     }
 
     // ==================== Direct JDBC Methods ====================
@@ -96,30 +411,51 @@ public class DataService {
      * @param entry text entry to save
      * @return saved text entry with ID
      */
+    @DataOperation(AccessPath.JDBC)
     public TextEntry saveEntryViaJdbc(TextEntry entry) {
         log.debug("Saving TextEntry via JDBC: {}", entry);
 
+        JwtStatus jwt = jwtVerificationService.statusOf(entry.getContent());
+        applyJwtStatus(entry, jwt);
+        applyContentPreview(entry);
+
         if (entry.getId() == null) {
             // Insert new entry
-            String sql = "INSERT INTO text_entries (title, content, created_at, updated_at) VALUES (?, ?, ?, ?) RETURNING id";
+            String sql = "INSERT INTO text_entries (title, content, content_preview, content_length, created_at, updated_at, " +
+                         "jwt_verified, jwt_kid, jwt_key_set, jwt_expires_at) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING id";
             Long id = jdbcTemplate.queryForObject(sql, Long.class,
                 entry.getTitle(),
-                entry.getContent(),
+                contentCodec.encode(entry.getContent()),
+                entry.getContentPreview(),
+                entry.getContentLength(),
                 LocalDateTime.now(),
-                LocalDateTime.now()
+                LocalDateTime.now(),
+                jwt.verified(),
+                jwt.kid(),
+                jwt.keySet(),
+                jwt.expiresAtTimestamp()
             );
             entry.setId(id);
         } else {
             // Update existing entry
-            String sql = "UPDATE text_entries SET title = ?, content = ?, updated_at = ? WHERE id = ?";
+            String sql = "UPDATE text_entries SET title = ?, content = ?, content_preview = ?, content_length = ?, updated_at = ?, " +
+                         "jwt_verified = ?, jwt_kid = ?, jwt_key_set = ?, jwt_expires_at = ? WHERE id = ?";
             jdbcTemplate.update(sql,
                 entry.getTitle(),
-                entry.getContent(),
+                contentCodec.encode(entry.getContent()),
+                entry.getContentPreview(),
+                entry.getContentLength(),
                 LocalDateTime.now(),
+                jwt.verified(),
+                jwt.kid(),
+                jwt.keySet(),
+                jwt.expiresAtTimestamp(),
                 entry.getId()
             );
         }
 
+        eventPublisher.publishEvent(EntryChangeEvent.saved(entry));
         return entry;
     }
 
@@ -129,10 +465,12 @@ public class DataService {
      * @param id entry ID
      * @return optional containing entry if found
      */
+    @DataOperation(AccessPath.JDBC)
+    @Transactional(readOnly = true)
     public Optional<TextEntry> findByIdViaJdbc(Long id) {
         log.debug("Finding TextEntry by id via JDBC: {}", id);
 
-        String sql = "SELECT id, title, content, created_at, updated_at FROM text_entries WHERE id = ?";
+        String sql = "SELECT " + ENTRY_COLUMNS + " FROM text_entries WHERE id = ?";
 
         List<TextEntry> results = jdbcTemplate.query(sql, new TextEntryRowMapper(), id);
 
@@ -144,24 +482,84 @@ public class DataService {
      *
      * @return list of all entries
      */
+    @DataOperation(AccessPath.JDBC)
+    @Transactional(readOnly = true)
     public List<TextEntry> findAllViaJdbc() {
         log.debug("Finding all TextEntries via JDBC");
 
-        String sql = "SELECT id, title, content, created_at, updated_at FROM text_entries ORDER BY created_at DESC";
+        String sql = "SELECT " + ENTRY_COLUMNS + " FROM text_entries ORDER BY created_at DESC";
 
         return jdbcTemplate.query(sql, new TextEntryRowMapper());
     }
 
+    /** Keyset page queries over entry summaries, for {@link #findSummaryPage} */
+    private final KeysetQueries<EntrySummary> summaryQueries = new KeysetQueries<>() {
+        @Override
+        public List<EntrySummary> first(int limit) {
+            String sql = "SELECT " + SUMMARY_COLUMNS + " FROM text_entries " +
+                         "ORDER BY created_at DESC, id DESC LIMIT ?";
+            return jdbcTemplate.query(sql, new EntrySummaryRowMapper(), limit);
+        }
+
+        @Override
+        public List<EntrySummary> olderThan(EntryCursor cursor, int limit) {
+            String sql = "SELECT " + SUMMARY_COLUMNS + " FROM text_entries WHERE (created_at, id) < (?, ?) " +
+                         "ORDER BY created_at DESC, id DESC LIMIT ?";
+            return jdbcTemplate.query(sql, new EntrySummaryRowMapper(),
+                    Timestamp.valueOf(cursor.createdAt()), cursor.id(), limit);
+        }
+
+        @Override
+        public List<EntrySummary> newerThan(EntryCursor cursor, int limit) {
+            String sql = "SELECT " + SUMMARY_COLUMNS + " FROM text_entries WHERE (created_at, id) > (?, ?) " +
+                         "ORDER BY created_at ASC, id ASC LIMIT ?";
+            return jdbcTemplate.query(sql, new EntrySummaryRowMapper(),
+                    Timestamp.valueOf(cursor.createdAt()), cursor.id(), limit);
+        }
+    };
+
+    /**
+     * Opens a streaming view over all entry summaries, newest first, backed by a server-side cursor.
+     * <p>
+     * Autocommit is switched off so the PostgreSQL driver honours the fetch size instead of
+     * buffering the whole result. The caller must {@link EntryStream#close() close} the stream
+     * to release the connection.
+     *
+     * @return open entry summary stream
+     */
+    @DataOperation(AccessPath.JDBC)
+    @PreferReplica
+    public EntryStream<EntrySummary> streamAllEntries() {
+        log.debug("Streaming all TextEntry summaries via JDBC cursor, fetchSize={}", streamFetchSize);
+
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM text_entries ORDER BY created_at DESC, id DESC";
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = dataSource.getConnection();
+            conn.setAutoCommit(false);
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(streamFetchSize);
+            return new EntryStream<>(conn, pstmt, pstmt.executeQuery(), new EntrySummaryRowMapper());
+        } catch (SQLException e) {
+            closeQuietly(pstmt, conn);
+            throw new RuntimeException("Error opening text entry stream", e);
+        }
+    }
+
     /**
      * Searches entries by title or content using JDBC template.
      *
      * @param searchTerm search term
      * @return matching entries
      */
+    @DataOperation(AccessPath.JDBC)
+    @Transactional(readOnly = true)
     public List<TextEntry> searchByTitleOrContentViaJdbc(String searchTerm) {
         log.debug("Searching TextEntries by title or content via JDBC: {}", searchTerm);
 
-        String sql = "SELECT id, title, content, created_at, updated_at FROM text_entries " +
+        String sql = "SELECT " + ENTRY_COLUMNS + " FROM text_entries " +
                      "WHERE title ILIKE ? OR content ILIKE ?";
 
         String likePattern = "%" + searchTerm + "%";
@@ -175,12 +573,381 @@ public class DataService {
      * @param id entry ID to delete
      * @return number of rows affected
      */
+    @DataOperation(AccessPath.JDBC)
     public int deleteByIdViaJdbc(Long id) {
         log.debug("Deleting TextEntry by id via JDBC: {}", id);
 
         String sql = "DELETE FROM text_entries WHERE id = ?";
 
-        return jdbcTemplate.update(sql, id);
+        int deleted = jdbcTemplate.update(sql, id);
+        eventPublisher.publishEvent(EntryChangeEvent.deleted(id));
+        return deleted;
+    }
+
+    /**
+     * Loads the fields the title prefix index needs for entries above an ID, in ID order.
+     * <p>
+     * Only a leading slice of the content is transferred; for compressed content that is the
+     * stored preview.
+     *
+     * @param afterId exclusive lower bound on the entry ID
+     * @param contentChars number of leading content characters to load
+     * @param limit maximum number of entries to return
+     * @return entries with ID, title and truncated content populated, with the bounds of the
+     *         snapshot that read them
+     */
+    @DataOperation(AccessPath.JDBC)
+    public EntryDelta<TextEntry> findIndexSourcesAfter(long afterId, int contentChars, int limit) {
+        // Compressed content cannot be cut in SQL: its stored preview is read instead (or, for rows
+        // compressed before previews were stored, the whole value, cut after decoding)
+        String sql = "SELECT id, title, " +
+                     "CASE WHEN left(content, 1) = chr(1) THEN coalesce(content_preview, content) ELSE left(content, ?) END AS content " +
+                     "FROM text_entries WHERE id > ? ORDER BY id LIMIT ?";
+
+        return queryDelta(sql, (rs, rowNum) -> {
+            String content = ContentCodec.decode(rs.getString("content"));
+            return TextEntry.builder()
+                    .id(rs.getLong("id"))
+                    .title(rs.getString("title"))
+                    .content(content != null && content.length() > contentChars ? content.substring(0, contentChars) : content)
+                    .build();
+        }, contentChars, afterId, limit);
+    }
+
+    // ==================== Ranked Full-Text Search ====================
+
+    /**
+     * Searches entries through the {@code search_vector} GIN index, best match first.
+     * <p>
+     * The query uses web search syntax ({@code "quoted phrase"}, {@code or}, {@code -excluded}).
+     * Results are ranked by {@code ts_rank}, with title matches weighted above content matches.
+     * Highlights are computed only for the rows on the requested page; snippets of compressed
+     * content come from its stored preview.
+     *
+     * @param query search query
+     * @param page zero-based page number (clamped to 0..{@value #MAX_SEARCH_PAGES})
+     * @param size page size (clamped to 1..{@value #MAX_PAGE_SIZE})
+     * @return page of ranked hits
+     */
+    @DataOperation(AccessPath.JDBC)
+    @Transactional(readOnly = true)
+    public SearchPage searchRanked(String query, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        if (query == null || query.isBlank()) {
+            return SearchPage.empty(query, limit);
+        }
+        int pageNumber = Math.max(0, Math.min(page, MAX_SEARCH_PAGES));
+        log.debug("Ranked search via JDBC: query={}, page={}, size={}", query, pageNumber, limit);
+
+        String sql = "SELECT " + ENTRY_COLUMNS + ", rank, " +
+                     "ts_headline('simple', coalesce(title, ''), q, 'HighlightAll=true') AS title_highlight, " +
+                     "ts_headline('simple', CASE WHEN left(content, 1) = chr(1) THEN coalesce(content_preview, '') " +
+                     "ELSE coalesce(content, '') END, q, 'MaxFragments=2, MinWords=5, MaxWords=20') AS snippet " +
+                     "FROM (SELECT " + ENTRY_COLUMNS + ", content_preview, q, ts_rank(search_vector, q) AS rank " +
+                     "      FROM text_entries, websearch_to_tsquery('simple', ?) q " +
+                     "      WHERE search_vector @@ q " +
+                     "      ORDER BY rank DESC, id DESC LIMIT ? OFFSET ?) ranked " +
+                     "ORDER BY rank DESC, id DESC";
+
+        TextEntryRowMapper entryMapper = new TextEntryRowMapper();
+        List<SearchHit> rows = jdbcTemplate.query(sql,
+                (rs, rowNum) -> new SearchHit(entryMapper.mapRow(rs, rowNum), rs.getDouble("rank"),
+                        rs.getString("title_highlight"), rs.getString("snippet")),
+                query, limit + 1, (long) pageNumber * limit);
+
+        boolean hasNext = rows.size() > limit;
+        return new SearchPage(query, hasNext ? List.copyOf(rows.subList(0, limit)) : rows, pageNumber, limit, hasNext);
+    }
+
+    // ==================== Bulk Import ====================
+
+    /** Column limits of text_entries, see {@link TextEntry} */
+    private static final int TITLE_MAX_LENGTH = 1255;
+    private static final int CONTENT_MAX_LENGTH = 12032;
+
+    /**
+     * Streams entries into text_entries through the PostgreSQL COPY protocol.
+     * <p>
+     * Input is parsed one record at a time and written straight into {@code COPY ... FROM STDIN},
+     * committing every {@code clinic.import.chunk-size} rows, so memory use does not grow with
+     * the input. Records that are malformed or too long for their column are skipped and counted.
+     * Imported rows get a pending JWT status and are picked up by the re-verification job.
+     * <p>
+     * If the import fails, chunks committed before the failure are kept.
+     *
+     * @param input CSV or NDJSON input, UTF-8
+     * @param format input format
+     * @param onProgress receives running totals after every committed chunk and once at the end
+     * @return final totals
+     * @throws IllegalArgumentException if a CSV header names neither title nor content
+     */
+    @DataOperation(AccessPath.COPY)
+    public ImportProgress importEntries(InputStream input, ImportFormat format, Consumer<ImportProgress> onProgress) {
+        String sql = "COPY text_entries (title, content, content_preview, content_length, created_at, updated_at) " +
+                     "FROM STDIN WITH (FORMAT csv)";
+        int chunkSize = Math.max(1, importChunkSize);
+        long start = System.nanoTime();
+        long imported = 0;
+        long skipped = 0;
+        int chunks = 0;
+        log.info("Importing TextEntries via COPY: format={}, chunkSize={}", format, chunkSize);
+
+        Connection conn = null;
+        try {
+            ImportRecordReader records = new ImportRecordReader(
+                    new InputStreamReader(input, StandardCharsets.UTF_8), format);
+            conn = dataSource.getConnection();
+            conn.setAutoCommit(false);
+            PGConnection pgConnection = conn.unwrap(PGConnection.class);
+
+            ImportRecordReader.Row row = records.next();
+            while (row != null) {
+                String timestamp = Timestamp.valueOf(LocalDateTime.now()).toString();
+                PGCopyOutputStream copy = new PGCopyOutputStream(pgConnection, sql, 64 * 1024);
+                try {
+                    Writer out = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), 64 * 1024);
+                    int rows = 0;
+                    for (; row != null && rows < chunkSize; row = records.next()) {
+                        if (!importable(row)) {
+                            skipped++;
+                            continue;
+                        }
+                        writeCsvField(out, row.title());
+                        out.write(',');
+                        String preview = contentCodec.previewOf(row.content());
+                        writeCsvField(out, contentCodec.encode(row.content()));
+                        out.write(',');
+                        writeCsvField(out, preview);
+                        out.write(',');
+                        if (preview != null) {
+                            out.write(Integer.toString(row.content().length()));
+                        }
+                        out.write(',');
+                        out.write(timestamp);
+                        out.write(',');
+                        out.write(timestamp);
+                        out.write('\n');
+                        rows++;
+                    }
+                    out.flush();
+                    imported += copy.endCopy();
+                } catch (IOException | SQLException | RuntimeException e) {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                    throw e;
+                }
+                conn.commit();
+                chunks++;
+                onProgress.accept(new ImportProgress(imported, skipped, chunks, elapsedMs(start), false));
+                log.info("Imported {} TextEntries ({} skipped) in {} chunks", imported, skipped, chunks);
+            }
+
+            ImportProgress result = new ImportProgress(imported, skipped, chunks, elapsedMs(start), true);
+            onProgress.accept(result);
+            return result;
+        } catch (IOException | SQLException e) {
+            rollbackQuietly(conn);
+            throw new RuntimeException("Error importing text entries after " + imported + " rows", e);
+        } catch (RuntimeException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            closeQuietly(null, conn);
+            if (imported > 0) {
+                eventPublisher.publishEvent(EntryChangeEvent.appended());
+            }
+        }
+    }
+
+    private static boolean importable(ImportRecordReader.Row row) {
+        if (row == ImportRecordReader.REJECTED) {
+            return false;
+        }
+        String title = row.title();
+        String content = row.content();
+        return (title == null || (title.length() <= TITLE_MAX_LENGTH && title.indexOf('\0') < 0))
+                && (content == null || (content.length() <= CONTENT_MAX_LENGTH && content.indexOf('\0') < 0));
+    }
+
+    /**
+     * Writes a value in COPY CSV form: null unquoted, strings always quoted.
+     */
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        out.write('"');
+        int from = 0;
+        for (int quote = value.indexOf('"'); quote >= 0; quote = value.indexOf('"', from)) {
+            out.write(value, from, quote + 1 - from);
+            out.write('"');
+            from = quote + 1;
+        }
+        out.write(value, from, value.length() - from);
+        out.write('"');
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    // ==================== Content Compression ====================
+
+    /**
+     * Finds entries whose content is long enough to compress but stored plain, in ID order.
+     *
+     * @param afterId exclusive lower ID bound
+     * @param minLength minimum content length
+     * @param limit maximum number of entries to return
+     * @return entries with ID and content populated
+     */
+    @DataOperation(AccessPath.JDBC)
+    public List<TextEntry> findCompressibleContentAfter(long afterId, int minLength, int limit) {
+        String sql = "SELECT id, content FROM text_entries " +
+                     "WHERE id > ? AND length(content) >= ? AND left(content, 1) <> chr(1) ORDER BY id LIMIT ?";
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> TextEntry.builder()
+                .id(rs.getLong("id"))
+                .content(rs.getString("content"))
+                .build(), afterId, minLength, limit);
+    }
+
+    /**
+     * Rewrites plain content in compressed form, skipping rows changed meanwhile.
+     * <p>
+     * The content as read back is unchanged, so no change event is published.
+     *
+     * @param entries entries with their current plain content
+     * @return number of rows rewritten
+     */
+    @DataOperation(AccessPath.JDBC)
+    public int compressContent(List<TextEntry> entries) {
+        String sql = "UPDATE text_entries SET content = ?, content_preview = ?, content_length = ? WHERE id = ? AND content = ?";
+
+        List<Object[]> args = new ArrayList<>(entries.size());
+        for (TextEntry entry : entries) {
+            String encoded = contentCodec.encode(entry.getContent());
+            if (!encoded.equals(entry.getContent())) {
+                args.add(new Object[]{encoded, contentCodec.previewOf(entry.getContent()), entry.getContent().length(),
+                        entry.getId(), entry.getContent()});
+            }
+        }
+        if (args.isEmpty()) {
+            return 0;
+        }
+
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(sql, args)) {
+            updated += Math.max(count, 0);
+        }
+        return updated;
+    }
+
+    // ==================== JWT Verification Status ====================
+
+    /**
+     * Finds entries whose JWT status has not been computed yet, oldest first.
+     * <p>
+     * Rows written by raw SQL, or reset after a key set change, have a null status.
+     *
+     * @param limit maximum number of entries to return
+     * @return entries with ID and content populated
+     */
+    @DataOperation(AccessPath.JDBC)
+    public List<TextEntry> findPendingJwtVerification(int limit) {
+        String sql = "SELECT id, content FROM text_entries WHERE jwt_verified IS NULL ORDER BY id LIMIT ?";
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> TextEntry.builder()
+                .id(rs.getLong("id"))
+                .content(ContentCodec.decode(rs.getString("content")))
+                .build(), limit);
+    }
+
+    /**
+     * Stores computed JWT statuses, skipping rows that were rewritten (and re-verified) meanwhile.
+     *
+     * @param statuses status per entry ID
+     * @return number of rows updated
+     */
+    @DataOperation(AccessPath.JDBC)
+    public int updateJwtStatuses(java.util.Map<Long, JwtStatus> statuses) {
+        String sql = "UPDATE text_entries SET jwt_verified = ?, jwt_kid = ?, jwt_key_set = ?, jwt_expires_at = ? " +
+                     "WHERE id = ? AND jwt_verified IS NULL";
+
+        List<Object[]> args = new ArrayList<>(statuses.size());
+        statuses.forEach((id, jwt) -> args.add(new Object[]{jwt.verified(), jwt.kid(), jwt.keySet(), jwt.expiresAtTimestamp(), id}));
+
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(sql, args)) {
+            updated += Math.max(count, 0);
+        }
+        if (updated > 0) {
+            // page-two highlights verified entries
+            invalidateEntryPages();
+        }
+        return updated;
+    }
+
+    /**
+     * Clears the JWT status of token rows verified against a different key set.
+     *
+     * @param keySet fingerprint of the current key set
+     * @return number of rows reset to pending
+     */
+    @DataOperation(AccessPath.JDBC)
+    public int resetJwtStatusesNotMatching(String keySet) {
+        String sql = "UPDATE text_entries SET jwt_verified = NULL, jwt_kid = NULL, jwt_key_set = NULL, jwt_expires_at = NULL " +
+                     "WHERE jwt_key_set IS NOT NULL AND jwt_key_set <> ?";
+
+        int reset = jdbcTemplate.update(sql, keySet);
+        if (reset > 0) {
+            invalidateEntryPages();
+        }
+        return reset;
+    }
+
+    /**
+     * Marks verified rows whose token has expired as not verified.
+     * <p>
+     * Listings already read such rows as not verified; this makes the change visible to the
+     * page cache and the entry set version.
+     *
+     * @return number of rows marked expired
+     */
+    @DataOperation(AccessPath.JDBC)
+    public int expireJwtStatuses() {
+        String sql = "UPDATE text_entries SET jwt_verified = false WHERE jwt_verified AND jwt_expires_at <= now()";
+
+        int expired = jdbcTemplate.update(sql);
+        if (expired > 0) {
+            invalidateEntryPages();
+        }
+        return expired;
+    }
+
+    /**
+     * Sets the stored listing preview of an entry's content, see {@link ContentCodec#previewOf}.
+     *
+     * @param entry entry to update
+     */
+    private void applyContentPreview(TextEntry entry) {
+        String preview = contentCodec.previewOf(entry.getContent());
+        entry.setContentPreview(preview);
+        entry.setContentLength(preview != null ? entry.getContent().length() : null);
+    }
+
+    /**
+     * Copies a JWT status onto an entry.
+     *
+     * @param entry entry to update
+     * @param jwt status to apply
+     */
+    private static void applyJwtStatus(TextEntry entry, JwtStatus jwt) {
+        entry.setJwtVerified(jwt.verified());
+        entry.setJwtKid(jwt.kid());
+        entry.setJwtKeySet(jwt.keySet());
+        entry.setJwtExpiresAt(jwt.expiresAt());
     }
 
     // ==================== Raw SQL Execution Methods ====================
@@ -195,6 +962,8 @@ public class DataService {
      * @param sqlQuery unsanitized SQL query
      * @return list of text entries
      */
+    @DataOperation(AccessPath.RAW)
+    @PreferReplica
     public List<TextEntry> executeRawQuery(String sqlQuery) {
         log.warn("Executing raw SQL query: {}", sqlQuery);
 
@@ -209,12 +978,94 @@ public class DataService {
      * @param sqlQuery unsanitized SQL query
      * @return list of maps (column name to value)
      */
+    @DataOperation(AccessPath.RAW)
+    @PreferReplica
     public List<java.util.Map<String, Object>> executeRawQueryForMaps(String sqlQuery) {
         log.warn("Executing raw SQL query for maps: {}", sqlQuery);
 
         return jdbcTemplate.queryForList(sqlQuery);
     }
 
+    /**
+     * Executes raw SQL query and streams the result to a handler over a server-side cursor.
+     * <p>
+     * Rows are fetched {@code clinic.entries.stream-fetch-size} at a time and handed over as
+     * they arrive, so memory use stays constant however large the result is. The query runs in
+     * a read-only transaction that is rolled back afterwards; statements injected after a
+     * {@code COMMIT} of their own run outside it.
+     * <p>
+     * WARNING: Intentionally vulnerable to SQL injection for educational purposes.
+     *
+     * @param sqlQuery unsanitized SQL query
+     * @param maxRows rows to read at most; the result is cut off beyond that
+     * @param timeout time limit for the whole result, including fetching
+     * @param handler receives the column metadata once, then each row
+     * @return number of rows streamed and why the result was cut off, if it was
+     */
+    @DataOperation(AccessPath.RAW)
+    @PreferReplica
+    public RawQuerySummary streamRawQuery(String sqlQuery, int maxRows, Duration timeout, RawRowHandler handler) {
+        log.warn("Streaming raw SQL query: {}", sqlQuery);
+
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long rows = 0;
+        RawQuerySummary.CutOff cutOff = null;
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = dataSource.getConnection();
+            // Hikari restores the pool's read-write default when the connection is returned
+            conn.setReadOnly(true);
+            conn.setAutoCommit(false);
+            pstmt = conn.prepareStatement(sqlQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(streamFetchSize);
+            pstmt.setMaxRows(maxRows < Integer.MAX_VALUE ? maxRows + 1 : 0);
+            // Covers execution and the first fetch; later fetches are checked against the deadline
+            pstmt.setQueryTimeout((int) Math.max(1, timeout.toSeconds()));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                java.sql.ResultSetMetaData metaData = rs.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                List<RawColumn> columns = new ArrayList<>(columnCount);
+                for (int i = 1; i <= columnCount; i++) {
+                    columns.add(new RawColumn(metaData.getColumnLabel(i), metaData.getColumnTypeName(i)));
+                }
+                handler.columns(columns);
+
+                Object[] values = new Object[columnCount];
+                while (rs.next()) {
+                    if (rows >= maxRows) {
+                        cutOff = RawQuerySummary.CutOff.ROWS;
+                        break;
+                    }
+                    if (System.nanoTime() - deadline > 0) {
+                        cutOff = RawQuerySummary.CutOff.TIMEOUT;
+                        break;
+                    }
+                    for (int i = 0; i < columnCount; i++) {
+                        values[i] = rs.getObject(i + 1);
+                    }
+                    rows++;
+                    if (!handler.row(values)) {
+                        cutOff = RawQuerySummary.CutOff.HANDLER;
+                        break;
+                    }
+                }
+            }
+
+            RawQuerySummary summary = new RawQuerySummary(rows, cutOff, elapsedMs(start));
+            log.debug("Streamed {} rows in {} ms (cut off: {})", rows, summary.elapsedMs(), cutOff);
+            return summary;
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException("Error streaming raw query after " + rows + " rows", e);
+        } finally {
+            rollbackQuietly(conn);
+            closeQuietly(pstmt, conn);
+        }
+    }
+
     /**
      * Executes raw SQL query returning single map.
      * <p>
@@ -223,6 +1074,8 @@ public class DataService {
      * @param sqlQuery unsanitized SQL query
      * @return map of column name to value, or null if no results
      */
+    @DataOperation(AccessPath.RAW)
+    @PreferReplica
     public java.util.Map<String, Object> executeRawQueryForMap(String sqlQuery) {
         log.warn("Executing raw SQL query for single map: {}", sqlQuery);
 
@@ -244,6 +1097,8 @@ public class DataService {
      * @param requiredType class of return type
      * @return query result, or null if no results
      */
+    @DataOperation(value = AccessPath.RAW, recordRows = false)
+    @PreferReplica
     public <T> T executeRawQueryForObject(String sqlQuery, Class<T> requiredType) {
         log.warn("Executing raw SQL query for object: {}", sqlQuery);
 
@@ -263,10 +1118,15 @@ public class DataService {
      * @param sqlStatement unsanitized SQL statement
      * @return number of rows affected
      */
+    @DataOperation(AccessPath.RAW)
     public int executeRawUpdate(String sqlStatement) {
         log.warn("Executing raw SQL update: {}", sqlStatement);
 
-        return jdbcTemplate.update(sqlStatement);
+        try {
+            return jdbcTemplate.update(sqlStatement);
+        } finally {
+            eventPublisher.publishEvent(EntryChangeEvent.reset());
+        }
     }
 
     /**
@@ -278,58 +1138,217 @@ public class DataService {
      * @param sqlStatement unsanitized SQL statement
      * @return true if statement returns result set, false otherwise
      */
+    @DataOperation(value = AccessPath.RAW, recordRows = false)
     public boolean executeRawStatement(String sqlStatement) {
         log.warn("Executing raw SQL statement: {}", sqlStatement);
 
-        return jdbcTemplate.execute((java.sql.Connection conn) -> {
-            try (java.sql.Statement stmt = conn.createStatement()) {
-                return stmt.execute(sqlStatement);
-            }
-        });
+        try {
+            return jdbcTemplate.execute((java.sql.Connection conn) -> {
+                try (java.sql.Statement stmt = conn.createStatement()) {
+                    return stmt.execute(sqlStatement);
+                }
+            });
+        } finally {
+            eventPublisher.publishEvent(EntryChangeEvent.reset());
+        }
     }
 
     /**
-     * Executes multiple raw SQL statements (semicolon-separated).
+     * Executes a raw SQL script of semicolon-separated statements on one connection.
+     * <p>
+     * The script is split by {@link SqlScriptSplitter}, so semicolons inside literals, dollar
+     * quotes and comments are safe.
+     * <p>
+     * With {@code singleTransaction} the script commits or rolls back as a whole, and consecutive
+     * statements that return no rows are sent as one JDBC batch, which the driver pipelines;
+     * statements that may return rows run on their own. Otherwise every statement runs and
+     * commits on its own, as before: a pipelined batch runs as one implicit transaction, so a
+     * failure would roll back the statements batched with it. A failure stops the script and
+     * earlier statements stay committed.
      * <p>
      * WARNING: Intentionally vulnerable to SQL injection for educational purposes.
      *
      * @param sqlStatements unsanitized SQL statements
-     * @return number of statements executed
+     * @param singleTransaction true to run the whole script in one transaction
+     * @return per-statement update counts, in script order; {@link java.sql.Statement#SUCCESS_NO_INFO}
+     *         for statements that returned rows or whose count the driver did not report
      */
-    public int executeBatchRawStatements(String sqlStatements) {
+    @DataOperation(value = AccessPath.RAW, recordRows = false)
+    public int[] executeBatchRawStatements(String sqlStatements, boolean singleTransaction) {
         log.warn("Executing batch raw SQL statements: {}", sqlStatements);
 
-        String[] statements = sqlStatements.split(";");
-        int count = 0;
+        List<SqlScriptSplitter.Statement> statements = SqlScriptSplitter.split(sqlStatements);
+        int[] counts = new int[statements.size()];
 
-        for (String statement : statements) {
-            String trimmed = statement.trim();
-            if (!trimmed.isEmpty()) {
-                jdbcTemplate.execute(trimmed);
-                count++;
+        try {
+            jdbcTemplate.execute((Connection conn) -> {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(!singleTransaction);
+                try (java.sql.Statement stmt = conn.createStatement()) {
+                    int batchStart = 0;
+                    for (int i = 0; i < statements.size(); i++) {
+                        SqlScriptSplitter.Statement statement = statements.get(i);
+                        if (singleTransaction && !statement.returnsRows()) {
+                            stmt.addBatch(statement.sql());
+                            continue;
+                        }
+                        flushBatch(stmt, counts, batchStart, i);
+                        counts[i] = stmt.execute(statement.sql()) ? java.sql.Statement.SUCCESS_NO_INFO : stmt.getUpdateCount();
+                        batchStart = i + 1;
+                    }
+                    flushBatch(stmt, counts, batchStart, statements.size());
+                    if (singleTransaction) {
+                        conn.commit();
+                    }
+                } catch (SQLException e) {
+                    if (singleTransaction) {
+                        rollbackQuietly(conn);
+                    }
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+                return null;
+            });
+        } finally {
+            eventPublisher.publishEvent(EntryChangeEvent.reset());
+        }
+
+        log.debug("Executed {} statements", statements.size());
+        return counts;
+    }
+
+    /**
+     * Executes the statements batched since {@code from}, if any, and records their counts.
+     */
+    private static void flushBatch(java.sql.Statement stmt, int[] counts, int from, int to) throws SQLException {
+        if (from == to) {
+            return;
+        }
+        int[] batchCounts = stmt.executeBatch();
+        System.arraycopy(batchCounts, 0, counts, from, Math.min(batchCounts.length, to - from));
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Closes a statement and connection after a failed setup, restoring autocommit first.
+     *
+     * @param stmt statement to close, may be null
+     * @param conn connection to close, may be null
+     */
+    private static void closeQuietly(java.sql.Statement stmt, Connection conn) {
+        try {
+            if (stmt != null) {
+                stmt.close();
             }
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        } catch (SQLException e) {
+            log.debug("Error releasing connection: {}", e.getMessage());
         }
+    }
 
-        return count;
+    /**
+     * Rolls back the current transaction, ignoring failures.
+     *
+     * @param conn connection to roll back, may be null
+     */
+    private static void rollbackQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            log.debug("Error rolling back: {}", e.getMessage());
+        }
     }
 
     // ==================== Row Mapper ====================
 
     /**
      * Row mapper for converting {@link ResultSet} to {@link TextEntry}.
+     * <p>
+     * JWT status columns are optional so raw queries selecting only the base columns still map.
+     * Package-private for the JMH benchmarks.
      *
      * @author jay
      */
-    private static class TextEntryRowMapper implements RowMapper<TextEntry> {
+    static class TextEntryRowMapper implements RowMapper<TextEntry> {
+
+        /** Whether the result set carries the JWT status columns (resolved on the first row) */
+        private Boolean hasJwtColumns;
+        private Boolean hasJwtExpiry;
+
         @Override
         public TextEntry mapRow(ResultSet rs, int rowNum) throws SQLException {
-            return TextEntry.builder()
+            TextEntry entry = TextEntry.builder()
                     .id(rs.getLong("id"))
                     .title(rs.getString("title"))
-                    .content(rs.getString("content"))
+                    .content(ContentCodec.decode(rs.getString("content")))
                     .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
                     .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
                     .build();
+
+            if (hasJwtColumns == null) {
+                hasJwtColumns = hasColumn(rs, "jwt_verified");
+            }
+            if (hasJwtColumns) {
+                entry.setJwtVerified(rs.getObject("jwt_verified", Boolean.class));
+                entry.setJwtKid(rs.getString("jwt_kid"));
+                entry.setJwtKeySet(rs.getString("jwt_key_set"));
+            }
+            if (hasJwtExpiry == null) {
+                hasJwtExpiry = hasColumn(rs, "jwt_expires_at");
+            }
+            if (hasJwtExpiry) {
+                Timestamp expiresAt = rs.getTimestamp("jwt_expires_at");
+                entry.setJwtExpiresAt(expiresAt != null ? expiresAt.toInstant() : null);
+            }
+            return entry;
+        }
+
+        private static boolean hasColumn(ResultSet rs, String column) throws SQLException {
+            java.sql.ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (column.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Row mapper for {@link #SUMMARY_COLUMNS}.
+     * <p>
+     * Compressed rows carry their stored preview; those compressed before previews were stored
+     * arrive whole (content length -1) and are decoded here and cut to the preview length.
+     *
+     * @author jay
+     */
+    static class EntrySummaryRowMapper implements RowMapper<EntrySummary> {
+
+        @Override
+        public EntrySummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+            String preview = rs.getString("preview");
+            int contentLength = rs.getInt("content_length");
+            if (preview != null && contentLength < 0) {
+                String content = ContentCodec.decode(preview);
+                contentLength = content.length();
+                preview = content.substring(0, Math.min(content.length(), EntrySummary.PREVIEW_LENGTH));
+            }
+            return new EntrySummary(
+                    rs.getLong("id"),
+                    rs.getString("title"),
+                    preview,
+                    contentLength,
+                    rs.getTimestamp("created_at").toLocalDateTime(),
+                    rs.getTimestamp("updated_at").toLocalDateTime(),
+                    rs.getObject("jwt_verified", Boolean.class));
         }
     }
 }
@@ -0,0 +1,62 @@
+package careless.clinic.service.data;
+
+import careless.clinic.model.TextEntry;
+
+/**
+ * Application event describing a change to the text_entries table.
+ * <p>
+ * Published by {@link DataService} and the page controllers after every write. Raw SQL writes
+ * cannot say which rows they touched, so they are reported as {@link Type#APPENDED} (new rows
+ * only, with unknown IDs) or {@link Type#RESET} (anything may have changed).
+ *
+ * @param type  kind of change
+ * @param id    affected entry ID, or null for {@link Type#APPENDED} and {@link Type#RESET}
+ * @param entry saved entry for {@link Type#SAVED}, otherwise null
+ * @author jay
+ */
+public record EntryChangeEvent(Type type, Long id, TextEntry entry) {
+
+    /**
+     * Kind of change.
+     */
+    public enum Type {
+        /** One entry was inserted or updated */
+        SAVED,
+        /** One entry was deleted */
+        DELETED,
+        /** New entries were inserted without their IDs being known */
+        APPENDED,
+        /** Arbitrary rows may have changed */
+        RESET
+    }
+
+    /**
+     * @param entry inserted or updated entry, with its ID
+     * @return {@link Type#SAVED} event
+     */
+    public static EntryChangeEvent saved(TextEntry entry) {
+        return new EntryChangeEvent(Type.SAVED, entry.getId(), entry);
+    }
+
+    /**
+     * @param id deleted entry ID
+     * @return {@link Type#DELETED} event
+     */
+    public static EntryChangeEvent deleted(Long id) {
+        return new EntryChangeEvent(Type.DELETED, id, null);
+    }
+
+    /**
+     * @return {@link Type#APPENDED} event
+     */
+    public static EntryChangeEvent appended() {
+        return new EntryChangeEvent(Type.APPENDED, null, null);
+    }
+
+    /**
+     * @return {@link Type#RESET} event
+     */
+    public static EntryChangeEvent reset() {
+        return new EntryChangeEvent(Type.RESET, null, null);
+    }
+}
@@ -0,0 +1,125 @@
+package careless.clinic.service.data;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * One-shot, forward-only view over a server-side cursor of text entry rows.
+ * <p>
+ * Rows are mapped lazily as the caller iterates, so memory use stays constant however
+ * large the table is. The underlying connection is held until {@link #close()} is called.
+ *
+ * @param <T> row type
+ * @author jay
+ * @see DataService#streamAllEntries()
+ */
+@Slf4j
+public class EntryStream<T> implements Iterable<T>, AutoCloseable {
+
+    private final Connection connection;
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final RowMapper<T> rowMapper;
+
+    private T next;
+    private int rowNum;
+    private boolean exhausted;
+    private boolean iterated;
+    private boolean closed;
+
+    EntryStream(Connection connection, Statement statement, ResultSet resultSet, RowMapper<T> rowMapper) {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * Checks whether the cursor yields no rows, fetching the first row if needed.
+     *
+     * @return true if there are no (remaining) entries
+     */
+    public boolean isEmpty() {
+        return !advance();
+    }
+
+    /**
+     * Returns the single iterator over this stream.
+     *
+     * @return iterator over the remaining entries
+     * @throws IllegalStateException if called more than once
+     */
+    @Override
+    public Iterator<T> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("EntryStream can only be iterated once");
+        }
+        iterated = true;
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return advance();
+            }
+
+            @Override
+            public T next() {
+                if (!advance()) {
+                    throw new NoSuchElementException();
+                }
+                T entry = EntryStream.this.next;
+                EntryStream.this.next = null;
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * Fetches the next row into {@link #next} unless one is already buffered.
+     *
+     * @return true if a row is available
+     */
+    private boolean advance() {
+        if (next != null) {
+            return true;
+        }
+        if (exhausted || closed) {
+            return false;
+        }
+        try {
+            if (!resultSet.next()) {
+                exhausted = true;
+                return false;
+            }
+            next = rowMapper.mapRow(resultSet, rowNum++);
+            return true;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming text entries", e);
+        }
+    }
+
+    /**
+     * Closes the cursor and returns the connection to the pool.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        log.debug("Closing text entry stream after {} rows", rowNum);
+        try (Connection conn = connection; Statement stmt = statement; ResultSet rs = resultSet) {
+            // Read-only cursor: end the transaction and restore pool defaults before release
+            conn.rollback();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            log.warn("Error closing text entry stream: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package careless.clinic.service.data;
+
+import java.util.Locale;
+
+/**
+ * Input formats accepted by {@link DataService#importEntries}.
+ *
+ * @author jay
+ */
+public enum ImportFormat {
+
+    /** RFC 4180 CSV with a header row naming the {@code title} and/or {@code content} columns */
+    CSV,
+
+    /** One JSON object per line with optional {@code title} and {@code content} fields */
+    NDJSON;
+
+    /**
+     * Resolves a format from a request parameter or content type.
+     *
+     * @param name format name or content type, e.g. {@code csv}, {@code text/csv}, {@code application/x-ndjson}
+     * @return matching format
+     * @throws IllegalArgumentException if the name is not recognised
+     */
+    public static ImportFormat from(String name) {
+        String value = name == null ? "" : name.toLowerCase(Locale.ROOT);
+        if (value.contains("csv")) {
+            return CSV;
+        }
+        if (value.contains("ndjson") || value.contains("jsonl") || value.contains("json-seq")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + name);
+    }
+}
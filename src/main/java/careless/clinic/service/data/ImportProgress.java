@@ -0,0 +1,14 @@
+package careless.clinic.service.data;
+
+/**
+ * Running totals of a bulk import, reported after every committed chunk.
+ *
+ * @param imported  rows committed so far
+ * @param skipped   input records rejected so far (malformed, or too long for their column)
+ * @param chunks    chunks committed so far
+ * @param elapsedMs time since the import started
+ * @param done      true for the final report
+ * @author jay
+ */
+public record ImportProgress(long imported, long skipped, int chunks, long elapsedMs, boolean done) {
+}
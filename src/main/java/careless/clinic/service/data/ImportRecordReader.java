@@ -0,0 +1,185 @@
+package careless.clinic.service.data;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streaming reader turning CSV or NDJSON input into title/content rows, one record at a time.
+ *
+ * @author jay
+ * @see DataService#importEntries
+ */
+class ImportRecordReader {
+
+    /**
+     * One input record.
+     *
+     * @param title   entry title, may be null
+     * @param content entry content, may be null
+     */
+    record Row(String title, String content) {
+    }
+
+    /** Returned for records that cannot be parsed */
+    static final Row REJECTED = new Row(null, null);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ImportFormat format;
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+
+    /** Column positions from the CSV header, -1 if absent */
+    private int titleColumn = -1;
+    private int contentColumn = -1;
+
+    ImportRecordReader(Reader reader, ImportFormat format) throws IOException {
+        this.format = format;
+        this.reader = format == ImportFormat.NDJSON ? new BufferedReader(reader, buffer.length) : reader;
+        if (format == ImportFormat.CSV) {
+            readCsvHeader();
+        }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return next row, {@link #REJECTED} for a malformed record, or null at end of input
+     * @throws IOException if the input cannot be read
+     */
+    Row next() throws IOException {
+        return format == ImportFormat.CSV ? nextCsv() : nextJson();
+    }
+
+    private void readCsvHeader() throws IOException {
+        List<String> header = readCsvRecord();
+        for (int i = 0; header != null && i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (name.equals("title")) {
+                titleColumn = i;
+            } else if (name.equals("content")) {
+                contentColumn = i;
+            }
+        }
+        if (titleColumn < 0 && contentColumn < 0) {
+            throw new IllegalArgumentException("CSV header must name a title and/or content column");
+        }
+    }
+
+    private Row nextCsv() throws IOException {
+        List<String> fields = readCsvRecord();
+        if (fields == null) {
+            return null;
+        }
+        int needed = Math.max(titleColumn, contentColumn);
+        if (fields.size() <= needed) {
+            return REJECTED;
+        }
+        String title = titleColumn < 0 || fields.get(titleColumn).isEmpty() ? null : fields.get(titleColumn);
+        return new Row(title, contentColumn < 0 ? null : fields.get(contentColumn));
+    }
+
+    private Row nextJson() throws IOException {
+        BufferedReader lines = (BufferedReader) reader;
+        String line;
+        do {
+            line = lines.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        try {
+            JsonNode node = MAPPER.readTree(line);
+            if (node == null || !node.isObject()) {
+                return REJECTED;
+            }
+            return new Row(node.path("title").textValue(), node.path("content").textValue());
+        } catch (IOException e) {
+            return REJECTED;
+        }
+    }
+
+    /**
+     * Reads one RFC 4180 record, skipping blank lines.
+     *
+     * @return fields of the record, or null at end of input
+     */
+    private List<String> readCsvRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStart = true;
+        boolean any = false;
+
+        int c;
+        while ((c = read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                } else if (peek() == '"') {
+                    read();
+                    field.append('"');
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+            } else if (c == '\n') {
+                if (fields.isEmpty() && field.isEmpty() && fieldStart) {
+                    any = false;
+                    continue;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+                fieldStart = false;
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+}
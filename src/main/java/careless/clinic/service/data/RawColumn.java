@@ -0,0 +1,12 @@
+package careless.clinic.service.data;
+
+/**
+ * One column of a streamed raw query result.
+ *
+ * @param name column label
+ * @param type database type name, e.g. {@code int8} or {@code text}
+ * @author jay
+ * @see RawRowHandler
+ */
+public record RawColumn(String name, String type) {
+}
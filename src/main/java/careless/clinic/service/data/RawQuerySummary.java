@@ -0,0 +1,32 @@
+package careless.clinic.service.data;
+
+/**
+ * Outcome of a streamed raw query.
+ *
+ * @param rows      rows handed to the handler
+ * @param cutOff    why the result was cut short, null if it was read to the end
+ * @param elapsedMs time from execution to the last row
+ * @author jay
+ * @see DataService#streamRawQuery
+ */
+public record RawQuerySummary(long rows, CutOff cutOff, long elapsedMs) {
+
+    /**
+     * Reason a streamed result was cut short.
+     */
+    public enum CutOff {
+        /** More rows than the row cap */
+        ROWS,
+        /** The time limit expired while rows were still being read */
+        TIMEOUT,
+        /** The handler asked to stop, e.g. at its byte cap */
+        HANDLER
+    }
+
+    /**
+     * @return true if rows were left unread
+     */
+    public boolean truncated() {
+        return cutOff != null;
+    }
+}
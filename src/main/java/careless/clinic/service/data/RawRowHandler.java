@@ -0,0 +1,33 @@
+package careless.clinic.service.data;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives a raw query result one row at a time.
+ * <p>
+ * {@link #columns} is called once before the first row. Row arrays are only valid for the
+ * duration of the {@link #row} call.
+ *
+ * @author jay
+ * @see DataService#streamRawQuery
+ */
+public interface RawRowHandler {
+
+    /**
+     * Receives the column metadata.
+     *
+     * @param columns result columns, in select order
+     * @throws IOException if the output fails
+     */
+    void columns(List<RawColumn> columns) throws IOException;
+
+    /**
+     * Receives one row.
+     *
+     * @param values column values, in select order
+     * @return false to stop reading further rows
+     * @throws IOException if the output fails
+     */
+    boolean row(Object[] values) throws IOException;
+}
@@ -0,0 +1,175 @@
+package careless.clinic.service.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits a PostgreSQL script into statements at top-level semicolons.
+ * <p>
+ * Semicolons inside string literals ({@code '...'}, {@code E'...'}), quoted identifiers,
+ * dollar-quoted bodies ({@code $$...$$}, {@code $tag$...$tag$}), line comments and (nested)
+ * block comments do not end a statement. Statements that hold nothing but whitespace and
+ * comments are dropped.
+ *
+ * @author jay
+ * @see DataService#executeBatchRawStatements
+ */
+final class SqlScriptSplitter {
+
+    /**
+     * One statement of a script.
+     *
+     * @param sql         statement text, trimmed, without the terminating semicolon
+     * @param returnsRows true if the statement may produce a result set and so cannot be batched
+     */
+    record Statement(String sql, boolean returnsRows) {
+    }
+
+    /** Leading keywords of statements that return rows */
+    private static final Set<String> QUERY_KEYWORDS = Set.of(
+            "SELECT", "WITH", "VALUES", "TABLE", "SHOW", "EXPLAIN", "FETCH", "CALL");
+
+    private SqlScriptSplitter() {
+    }
+
+    /**
+     * Splits a script into statements.
+     *
+     * @param script SQL script
+     * @return statements in script order
+     */
+    static List<Statement> split(String script) {
+        List<Statement> statements = new ArrayList<>();
+        int length = script.length();
+        int start = 0;
+        boolean hasCode = false;
+        String firstWord = null;
+        boolean returning = false;
+        String lastWord = null;
+        int lastWordEnd = -1;
+
+        int i = 0;
+        while (i < length) {
+            char c = script.charAt(i);
+            if (c == '\'') {
+                boolean escapes = i == lastWordEnd && "E".equalsIgnoreCase(lastWord);
+                i = skipQuoted(script, i, '\'', escapes);
+                hasCode = true;
+            } else if (c == '"') {
+                i = skipQuoted(script, i, '"', false);
+                hasCode = true;
+            } else if (c == '-' && i + 1 < length && script.charAt(i + 1) == '-') {
+                int newline = script.indexOf('\n', i);
+                i = newline < 0 ? length : newline + 1;
+            } else if (c == '/' && i + 1 < length && script.charAt(i + 1) == '*') {
+                i = skipBlockComment(script, i);
+            } else if (c == '$' && i != lastWordEnd && dollarTagEnd(script, i) > 0) {
+                int tagEnd = dollarTagEnd(script, i);
+                String tag = script.substring(i, tagEnd);
+                int close = script.indexOf(tag, tagEnd);
+                i = close < 0 ? length : close + tag.length();
+                hasCode = true;
+            } else if (c == ';') {
+                if (hasCode) {
+                    statements.add(statement(script.substring(start, i), firstWord, returning));
+                }
+                i++;
+                start = i;
+                hasCode = false;
+                firstWord = null;
+                returning = false;
+            } else if (Character.isLetter(c) || c == '_') {
+                int end = i + 1;
+                while (end < length && isIdentifierPart(script.charAt(end))) {
+                    end++;
+                }
+                lastWord = script.substring(i, end);
+                lastWordEnd = end;
+                if (firstWord == null) {
+                    firstWord = lastWord;
+                }
+                returning |= "RETURNING".equalsIgnoreCase(lastWord);
+                hasCode = true;
+                i = end;
+            } else {
+                hasCode |= !Character.isWhitespace(c);
+                i++;
+            }
+        }
+        if (hasCode) {
+            statements.add(statement(script.substring(start), firstWord, returning));
+        }
+        return statements;
+    }
+
+    private static Statement statement(String sql, String firstWord, boolean returning) {
+        boolean query = firstWord != null && QUERY_KEYWORDS.contains(firstWord.toUpperCase(Locale.ROOT));
+        return new Statement(sql.trim(), query || returning);
+    }
+
+    /**
+     * @return index after the closing quote (doubled quotes are part of the literal)
+     */
+    private static int skipQuoted(String script, int open, char quote, boolean backslashEscapes) {
+        int i = open + 1;
+        while (i < script.length()) {
+            char c = script.charAt(i);
+            if (backslashEscapes && c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < script.length() && script.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return script.length();
+    }
+
+    /**
+     * @return index after the comment, which may nest
+     */
+    private static int skipBlockComment(String script, int open) {
+        int depth = 0;
+        int i = open;
+        while (i < script.length()) {
+            if (script.startsWith("/*", i)) {
+                depth++;
+                i += 2;
+            } else if (script.startsWith("*/", i)) {
+                depth--;
+                i += 2;
+                if (depth == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        return script.length();
+    }
+
+    /**
+     * Matches a dollar-quote tag ({@code $$} or {@code $tag$}) at the given position.
+     *
+     * @return index after the tag, or -1 if there is none (e.g. a {@code $1} parameter)
+     */
+    private static int dollarTagEnd(String script, int dollar) {
+        int i = dollar + 1;
+        if (i < script.length() && (Character.isLetter(script.charAt(i)) || script.charAt(i) == '_')) {
+            while (i < script.length() && isIdentifierPart(script.charAt(i)) && script.charAt(i) != '$') {
+                i++;
+            }
+        }
+        return i < script.length() && script.charAt(i) == '$' ? i + 1 : -1;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
@@ -0,0 +1,405 @@
+package careless.clinic.service.data;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind queue for form submissions, written by a single thread in group commits.
+ * <p>
+ * Request threads only enqueue; the writer drains up to {@code batch-size} submissions at a time
+ * and runs them on one connection in one transaction. Each submission still executes its own
+ * statement(s), under its own savepoint, so a statement that fails is rolled back alone and its
+ * recovery step runs in its place.
+ * <p>
+ * A submission that injects transaction control ({@code COMMIT}, {@code ROLLBACK}) ends the group
+ * transaction early, which shows as its savepoint being gone. The writer then asks PostgreSQL
+ * whether the group transaction committed: if it did, the submissions before it are kept; if not,
+ * they are written again one by one in autocommit mode. The submission that ended the
+ * transaction keeps whatever its own statements did, and the rest of the group continues in a new
+ * transaction. A failed commit or a lost connection is settled the same way, on a fresh
+ * connection, so a commit whose acknowledgement was lost is not written twice; submissions are
+ * rewritten only if their transaction aborted or its outcome cannot be read.
+ * <p>
+ * When the queue is full, {@link #submit} waits up to {@code offer-timeout} and then gives up, so
+ * callers can shed load. On shutdown the queue is drained after the web server has stopped
+ * accepting requests.
+ *
+ * @author jay
+ */
+@Slf4j
+@Service
+public class SubmissionWriter implements SmartLifecycle {
+
+    /**
+     * One queued submission.
+     */
+    public interface Submission {
+
+        /**
+         * Writes the submission.
+         *
+         * @param conn connection, inside the group transaction
+         * @throws Exception if the write fails
+         */
+        void write(Connection conn) throws Exception;
+
+        /**
+         * Writes a replacement after {@link #write} failed and was rolled back.
+         *
+         * @param conn connection, inside the group transaction
+         * @param failure error raised by {@link #write}
+         * @throws Exception if the recovery write fails as well
+         */
+        void recover(Connection conn, Exception failure) throws Exception;
+    }
+
+    /** Stops after the web server, which stops at DEFAULT_PHASE - 2048 (graceful shutdown at - 1024) */
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    /** Polls of a transaction still shown as in progress after its connection failed */
+    private static final int STATUS_ATTEMPTS = 10;
+    private static final Duration STATUS_RETRY = Duration.ofMillis(200);
+
+    private final DataSource dataSource;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final BlockingQueue<Submission> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    private final Duration drainTimeout;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public SubmissionWriter(DataSource dataSource,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${clinic.submit.write-behind.enabled:false}") boolean enabled,
+                            @Value("${clinic.submit.write-behind.queue-capacity:10000}") int queueCapacity,
+                            @Value("${clinic.submit.write-behind.batch-size:500}") int batchSize,
+                            @Value("${clinic.submit.write-behind.flush-interval:20ms}") Duration flushInterval,
+                            @Value("${clinic.submit.write-behind.offer-timeout:1s}") Duration offerTimeout,
+                            @Value("${clinic.submit.write-behind.drain-timeout:30s}") Duration drainTimeout) {
+        this.dataSource = dataSource;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * @return true if submissions should go through this queue
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a submission, waiting up to {@code offer-timeout} for space.
+     *
+     * @param submission submission to write
+     * @return false if the queue stayed full (or the writer is stopping)
+     */
+    public boolean submit(Submission submission) {
+        if (!running) {
+            return false;
+        }
+        try {
+            if (!queue.offer(submission, offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        // Stopped during the offer: the writer may already have drained the queue and exited, so
+        // take the submission back unless the writer has it
+        return running || !queue.remove(submission);
+    }
+
+    /**
+     * @return number of submissions waiting to be written
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform().name("submission-writer").daemon(false).start(this::drainLoop);
+        log.info("Write-behind submissions enabled - capacity: {}, batchSize: {}, flushInterval: {}",
+                queue.remainingCapacity(), batchSize, flushInterval);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        log.info("Draining {} queued submissions", queue.size());
+        try {
+            writer.join(drainTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("Submission writer did not drain within {}, {} submissions lost", drainTimeout, queue.size());
+            writer.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Writes groups until stopped and the queue is empty.
+     */
+    private void drainLoop() {
+        List<Submission> group = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Submission first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, batchSize - 1);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error writing submission group", e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a group in as few transactions as its submissions allow.
+     *
+     * @param group submissions to write
+     */
+    private void writeGroup(List<Submission> group) {
+        int settled = 0;
+        while (settled < group.size()) {
+            settled += writeTransaction(group.subList(settled, group.size()));
+        }
+        eventPublisher.publishEvent(EntryChangeEvent.appended());
+    }
+
+    /**
+     * Writes submissions in one transaction until they are all committed or one of them ends
+     * the transaction itself.
+     *
+     * @param submissions submissions to write
+     * @return number of leading submissions that are settled (at least one)
+     */
+    private int writeTransaction(List<Submission> submissions) {
+        Connection conn;
+        try {
+            conn = dataSource.getConnection();
+        } catch (SQLException e) {
+            log.warn("No connection for {} submissions ({}), writing them one by one", submissions.size(), e.getMessage());
+            submissions.forEach(this::writeAlone);
+            return submissions.size();
+        }
+        String xid = null;
+        int started = 0;
+        boolean committing = false;
+        boolean connectionLost;
+        SQLException failure;
+        try {
+            conn.setAutoCommit(false);
+            xid = transactionId(conn);
+            for (Submission submission : submissions) {
+                Savepoint savepoint = conn.setSavepoint();
+                started++;
+                writeOrRecover(conn, submission, savepoint);
+                // Fails if the submission committed or rolled back the transaction
+                conn.releaseSavepoint(savepoint);
+            }
+            committing = true;
+            conn.commit();
+            log.debug("Committed {} submissions", submissions.size());
+            return submissions.size();
+        } catch (SQLException e) {
+            failure = e;
+        } finally {
+            connectionLost = !reset(conn);
+        }
+        return settle(submissions, xid, started, committing, connectionLost, failure);
+    }
+
+    /**
+     * Settles the submissions of a group transaction that failed or was ended by one of them.
+     * <p>
+     * The outcome is looked up by transaction ID rather than inferred from the error, so a
+     * commit that reached the server but lost its acknowledgement is not written twice.
+     *
+     * @param submissions submissions of the transaction
+     * @param xid transaction ID, or null if the transaction never started
+     * @param started number of submissions that started writing
+     * @param committing true if the failure came from the commit
+     * @param connectionLost true if the connection could not be rolled back afterwards
+     * @param failure error that ended the transaction
+     * @return number of leading submissions that are settled (at least one)
+     */
+    private int settle(List<Submission> submissions, String xid, int started, boolean committing,
+                       boolean connectionLost, SQLException failure) {
+        if (xid == null || (!committing && started == 0)) {
+            log.warn("Group transaction of {} submissions failed before writing ({}), writing them one by one",
+                    submissions.size(), failure.getMessage());
+            submissions.forEach(this::writeAlone);
+            return submissions.size();
+        }
+        int settled = committing ? submissions.size() : started;
+        String status = transactionStatus(xid);
+        if ("committed".equals(status)) {
+            log.warn("Group transaction committed despite {} ({}), keeping {} submissions",
+                    committing ? "a failed commit" : "an error", failure.getMessage(), settled);
+            return settled;
+        }
+        // On an intact connection the last started submission ended the transaction itself and keeps what it did
+        int rewrite = committing || connectionLost ? settled : settled - 1;
+        log.warn("Group transaction {} ({}), rewriting {} submissions one by one",
+                status != null ? status : "outcome unknown", failure.getMessage(), rewrite);
+        submissions.subList(0, rewrite).forEach(this::writeAlone);
+        return settled;
+    }
+
+    /**
+     * Runs a submission after its savepoint, rolling back to it and recovering if it fails.
+     *
+     * @param conn connection in the group transaction
+     * @param submission submission to write
+     * @param savepoint savepoint set just before
+     * @throws SQLException if the savepoint cannot be used; the transaction is then gone
+     */
+    private void writeOrRecover(Connection conn, Submission submission, Savepoint savepoint) throws SQLException {
+        try {
+            submission.write(conn);
+        } catch (Exception e) {
+            conn.rollback(savepoint);
+            try {
+                submission.recover(conn, e);
+            } catch (Exception recoveryFailure) {
+                conn.rollback(savepoint);
+                log.error("Error recovering failed submission", recoveryFailure);
+            }
+        }
+    }
+
+    /**
+     * @return ID of the transaction open on the connection, assigning one if needed
+     */
+    private static String transactionId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_current_xact_id()::text")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    /**
+     * Looks up a transaction's outcome on a fresh connection.
+     * <p>
+     * A transaction whose connection was lost can show as {@code in progress} until the server
+     * notices, so that status is polled a few times before it is reported.
+     *
+     * @param xid transaction ID
+     * @return {@code committed}, {@code aborted} or {@code in progress}, or null if it cannot be read
+     */
+    private String transactionStatus(String xid) {
+        for (int attempt = 1; ; attempt++) {
+            String status;
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("SELECT pg_xact_status(?::xid8)")) {
+                stmt.setString(1, xid);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    status = rs.getString(1);
+                }
+            } catch (SQLException e) {
+                log.warn("Error reading status of transaction {}: {}", xid, e.getMessage());
+                return null;
+            }
+            if (!"in progress".equals(status) || attempt >= STATUS_ATTEMPTS) {
+                return status;
+            }
+            try {
+                Thread.sleep(STATUS_RETRY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return status;
+            }
+        }
+    }
+
+    /**
+     * Rolls back whatever is left of the transaction, restores autocommit and returns the
+     * connection to the pool.
+     *
+     * @param conn group connection
+     * @return false if the connection was no longer usable
+     */
+    private static boolean reset(Connection conn) {
+        try (conn) {
+            conn.rollback();
+            conn.setAutoCommit(true);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes one submission in autocommit mode, as the synchronous path would.
+     *
+     * @param submission submission to write
+     */
+    private void writeAlone(Submission submission) {
+        try (Connection conn = dataSource.getConnection()) {
+            try {
+                submission.write(conn);
+            } catch (Exception e) {
+                submission.recover(conn, e);
+            }
+        } catch (Exception e) {
+            log.error("Error writing submission", e);
+        }
+    }
+}
@@ -23,19 +23,27 @@ public interface TextEntryRepository extends JpaRepository<TextEntry, Long> {
 
     /**
      * Finds entries with title containing search term (case-insensitive).
+     * <p>
+     * Uses ILIKE so the trigram index on title applies. {@code %}, {@code _} and {@code \} in the
+     * term are escaped, so they match literally as in the derived query.
      *
      * @param title search term for title
      * @return matching text entries
      */
-    List<TextEntry> findByTitleContainingIgnoreCase(String title);
+    @Query(value = "SELECT * FROM text_entries WHERE title ILIKE '%' || :#{escape([0])} || '%' ESCAPE '\\'", nativeQuery = true)
+    List<TextEntry> findByTitleContainingIgnoreCase(@Param("title") String title);
 
     /**
      * Finds entries with content containing search term (case-insensitive).
+     * <p>
+     * Uses ILIKE so the trigram index on content applies. {@code %}, {@code _} and {@code \} in the
+     * term are escaped, so they match literally as in the derived query.
      *
      * @param content search term for content
      * @return matching text entries
      */
-    List<TextEntry> findByContentContainingIgnoreCase(String content);
+    @Query(value = "SELECT * FROM text_entries WHERE content ILIKE '%' || :#{escape([0])} || '%' ESCAPE '\\'", nativeQuery = true)
+    List<TextEntry> findByContentContainingIgnoreCase(@Param("content") String content);
 
     /**
      * Finds entries created within time range.
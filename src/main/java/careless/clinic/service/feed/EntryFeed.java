@@ -0,0 +1,360 @@
+package careless.clinic.service.feed;
+
+import careless.clinic.model.EntryDelta;
+import careless.clinic.model.EntrySummary;
+import careless.clinic.service.data.CommitWatermark;
+import careless.clinic.service.data.DataService;
+import careless.clinic.service.data.EntryChangeEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live feed of entry changes, pushed to the entry pages as Server-Sent Events.
+ * <p>
+ * The feed keeps a high-water mark: the highest entry ID it has announced. On every
+ * {@link EntryChangeEvent} it reads the rows it has not announced yet (one query, whatever the
+ * number of subscribers), renders a single SSE frame and hands it to every subscriber. Frames
+ * carry the high-water mark as their {@code id}, so a reconnecting {@code EventSource} resumes
+ * from {@code Last-Event-ID} and is sent what it missed.
+ * <p>
+ * Rows can commit out of ID order, below the mark, so reads start from a lower floor kept by a
+ * {@link CommitWatermark} rather than from the mark itself. A late row is announced like any
+ * other; the page slots it in by ID.
+ * <p>
+ * Events:
+ * <ul>
+ *   <li>{@code entries} - JSON array of new or updated {@link EntrySummary} rows</li>
+ *   <li>{@code deleted} - ID of a deleted entry</li>
+ *   <li>{@code reset} - too much changed to send as a delta; the page should reload</li>
+ * </ul>
+ * Fan-out never blocks the feed: each subscriber has its own outbox, drained on a virtual thread,
+ * and a subscriber that falls {@code max-queued} frames behind is disconnected (it reconnects and
+ * catches up). Idle subscribers hold no thread, only an async request, so one node can carry tens
+ * of thousands of them within the connector's {@code max-connections}.
+ *
+ * @author jay
+ */
+@Slf4j
+@Service
+public class EntryFeed {
+
+    /** Content type of the feed response */
+    public static final MediaType EVENT_STREAM = new MediaType(MediaType.TEXT_EVENT_STREAM, StandardCharsets.UTF_8);
+
+    private static final String HEARTBEAT = ":\n\n";
+
+    private final DataService dataService;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final int maxSubscribers;
+    private final int maxQueued;
+    private final int deltaLimit;
+    private final Counter dropped;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    /** Reads and broadcasts run here, one at a time and in event order */
+    private final ExecutorService maintenance = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("entry-feed").factory());
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("entry-feed-send-", 0).factory());
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    /** Entries announced so far; used on the maintenance thread only */
+    private final CommitWatermark watermark;
+    /** Highest entry ID announced; written on the maintenance thread only */
+    private volatile long highWater;
+
+    public EntryFeed(DataService dataService,
+                     ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry,
+                     @Value("${clinic.feed.timeout:30m}") Duration timeout,
+                     @Value("${clinic.feed.max-subscribers:50000}") int maxSubscribers,
+                     @Value("${clinic.feed.max-queued:64}") int maxQueued,
+                     @Value("${clinic.feed.delta-limit:500}") int deltaLimit) {
+        this.dataService = dataService;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.maxSubscribers = maxSubscribers;
+        this.maxQueued = Math.max(1, maxQueued);
+        this.deltaLimit = Math.max(1, deltaLimit);
+        this.watermark = new CommitWatermark("Entry feed", this.deltaLimit * 4);
+        Gauge.builder("clinic.feed.subscribers", subscribers, Set::size)
+                .description("Open entry feed connections")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("clinic.feed.dropped")
+                .description("Entry feed subscribers disconnected for falling behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the initial high-water mark once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        maintain(this::resync);
+    }
+
+    /**
+     * Disconnects every subscriber and stops the feed threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+        subscribers.forEach(Subscriber::close);
+        senders.shutdownNow();
+    }
+
+    /**
+     * Opens a feed connection.
+     *
+     * @param since highest entry ID the client already has, or null to start from now
+     * @return emitter to return from the handler, or null if the node is at its subscriber limit
+     */
+    public ResponseBodyEmitter subscribe(Long since) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::closed);
+        emitter.onTimeout(subscriber::closed);
+        emitter.onError(e -> subscriber.closed());
+        // Joins after its catch-up frame, so it cannot miss or reorder a broadcast
+        maintain(() -> {
+            subscriber.offer(catchUpFrame(since));
+            subscribers.add(subscriber);
+            if (subscriber.isClosed()) {
+                subscribers.remove(subscriber);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Broadcasts an entry change once its transaction has committed.
+     *
+     * @param event change event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChange(EntryChangeEvent event) {
+        switch (event.type()) {
+            case SAVED -> {
+                if (event.id() != null && event.id() <= highWater) {
+                    EntrySummary summary = EntrySummary.of(event.entry());
+                    maintain(() -> broadcast(frame("entries", List.of(summary))));
+                } else {
+                    requestRefresh();
+                }
+            }
+            case APPENDED -> requestRefresh();
+            case DELETED -> maintain(() -> broadcast(frame("deleted", event.id())));
+            case RESET -> maintain(() -> {
+                resync();
+                broadcast(frame("reset", null));
+            });
+        }
+    }
+
+    /**
+     * Sends an SSE comment to every subscriber, keeping proxies from closing idle connections
+     * and finding connections that are gone.
+     */
+    @Scheduled(fixedDelayString = "${clinic.feed.heartbeat:25s}", initialDelayString = "${clinic.feed.heartbeat:25s}")
+    public void heartbeat() {
+        broadcast(HEARTBEAT);
+    }
+
+    /**
+     * Queues a read of new rows, coalescing requests that arrive while one is pending.
+     */
+    private void requestRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            maintain(() -> {
+                refreshPending.set(false);
+                String frame = deltaFrame();
+                if (frame != null) {
+                    broadcast(frame);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs a read or broadcast on the maintenance thread, after those queued before it.
+     */
+    private void maintain(Runnable task) {
+        maintenance.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Error updating entry feed: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Frame for a new subscriber: what it missed since {@code since}, or just the current mark.
+     * <p>
+     * Late rows announced below {@code since} while it was away are included; rows it already
+     * has may be sent again, which the page treats as updates.
+     */
+    private String catchUpFrame(Long since) {
+        if (since != null && since < highWater) {
+            try {
+                long after = Math.min(since, watermark.floor());
+                int limit = deltaLimit + 1 + watermark.tracked();
+                List<EntrySummary> missed = dataService.findSummariesAfter(after, limit).entries();
+                if (missed.size() >= limit) {
+                    return frame("reset", null);
+                }
+                // Rows not announced yet are left to the pending refresh
+                return frame("entries", missed.stream().filter(entry -> watermark.isSeen(entry.id())).toList());
+            } catch (RuntimeException e) {
+                log.warn("Error reading entry feed catch-up: {}", e.getMessage());
+                return frame("reset", null);
+            }
+        }
+        return frame("entries", List.of());
+    }
+
+    /**
+     * Reads the rows not announced yet and advances the mark.
+     *
+     * @return frame announcing them, or null if there are none
+     */
+    private String deltaFrame() {
+        int limit = deltaLimit + 1 + watermark.tracked();
+        EntryDelta<EntrySummary> delta = dataService.findSummariesAfter(watermark.floor(), limit);
+        if (delta.entries().size() >= limit) {
+            // More than deltaLimit new rows: the reset makes pages reload whatever has committed
+            resync();
+            return frame("reset", null);
+        }
+        List<EntrySummary> added = watermark.unseen(delta.entries(), EntrySummary::id);
+        watermark.passComplete(delta, delta);
+        highWater = watermark.highest();
+        return added.isEmpty() ? null : frame("entries", added);
+    }
+
+    /**
+     * Restarts the mark from the current highest entry ID.
+     */
+    private void resync() {
+        watermark.reset(dataService.findMaxEntryId());
+        highWater = watermark.highest();
+    }
+
+    /**
+     * Renders one SSE frame, once for all subscribers.
+     */
+    private String frame(String event, Object data) {
+        try {
+            return "id: " + highWater + "\nevent: " + event + "\ndata: " + objectMapper.writeValueAsString(data) + "\n\n";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error rendering entry feed frame", e);
+        }
+    }
+
+    private void broadcast(String frame) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(frame);
+        }
+    }
+
+    /**
+     * One feed connection with its outbox.
+     */
+    private final class Subscriber {
+
+        private final ResponseBodyEmitter emitter;
+        private final Queue<String> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queues a frame without blocking; disconnects the subscriber if it is too far behind.
+         */
+        void offer(String frame) {
+            if (closed) {
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                dropped.increment();
+                close();
+                return;
+            }
+            outbox.add(frame);
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                String frame;
+                while (!closed && (frame = outbox.poll()) != null) {
+                    queued.decrementAndGet();
+                    try {
+                        emitter.send(frame, EVENT_STREAM);
+                    } catch (IOException | IllegalStateException e) {
+                        close();
+                    }
+                }
+                draining.set(false);
+            } while (!closed && !outbox.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Callback for a connection that has ended.
+         */
+        void closed() {
+            closed = true;
+            subscribers.remove(this);
+            outbox.clear();
+        }
+
+        void close() {
+            closed();
+            try {
+                emitter.complete();
+            } catch (RuntimeException e) {
+                log.debug("Error completing entry feed connection: {}", e.getMessage());
+            }
+        }
+    }
+}
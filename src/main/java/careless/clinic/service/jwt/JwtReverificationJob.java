@@ -0,0 +1,95 @@
+package careless.clinic.service.jwt;
+
+import careless.clinic.model.TextEntry;
+import careless.clinic.service.data.DataService;
+import careless.util.Tools;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background job that keeps the persisted JWT status of entries current.
+ * <p>
+ * Whenever it sees a key set fingerprint it has not reconciled yet (including the first run
+ * after startup), token rows verified against a different key set are reset to pending. Each
+ * run then verifies pending rows in batches; pending rows also come from raw SQL writes that
+ * bypass the verify-on-write paths. Verified rows whose token has expired are marked as not
+ * verified.
+ *
+ * @author jay
+ * @see DataService#findPendingJwtVerification(int)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JwtReverificationJob {
+
+    private final DataService dataService;
+    private final JwtVerificationService jwtVerificationService;
+
+    @Value("${clinic.jwt.reverify.batch-size:500}")
+    private int batchSize;
+
+    /** Key set fingerprint whose stale rows have already been reset */
+    private String reconciledKeySet;
+
+    /**
+     * Resets rows after a key set change, expires lapsed tokens and verifies all pending rows.
+     */
+    @Scheduled(initialDelayString = "${clinic.jwt.reverify.initial-delay:10s}",
+               fixedDelayString = "${clinic.jwt.reverify.interval:30s}")
+    public void run() {
+        String keySet = Tools.getKeyRing().fingerprint();
+        if (!keySet.equals(reconciledKeySet)) {
+            int reset = dataService.resetJwtStatusesNotMatching(keySet);
+            if (reset > 0) {
+                log.info("JWT key set is now {}: {} entries queued for re-verification", keySet, reset);
+            }
+            reconciledKeySet = keySet;
+        }
+
+        int expired = dataService.expireJwtStatuses();
+        if (expired > 0) {
+            log.info("{} verified JWT entries have expired", expired);
+        }
+
+        int total = 0;
+        while (true) {
+            List<TextEntry> pending = dataService.findPendingJwtVerification(batchSize);
+            int updated = pending.isEmpty() ? 0 : verifyBatch(pending);
+            total += updated;
+            // Stop on a short batch, or if nothing could be stored (deadline hit or rows raced)
+            if (pending.size() < batchSize || updated == 0) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Stored JWT status for {} entries", total);
+        }
+    }
+
+    /**
+     * Verifies one batch of pending entries in parallel and stores the results.
+     *
+     * @param pending entries with ID and content
+     * @return number of rows updated
+     */
+    private int verifyBatch(List<TextEntry> pending) {
+        Map<Long, JwtStatus> statuses = new HashMap<>();
+        for (TextEntry entry : pending) {
+            if (JwtVerificationService.jwtCandidate(entry.getContent()) == null) {
+                statuses.put(entry.getId(), JwtStatus.NOT_A_TOKEN);
+            }
+        }
+        jwtVerificationService.verifyAll(pending,
+                entry -> JwtVerificationService.jwtCandidate(entry.getContent()),
+                (entry, result) -> statuses.put(entry.getId(), jwtVerificationService.statusOf(result)));
+        return statuses.isEmpty() ? 0 : dataService.updateJwtStatuses(statuses);
+    }
+}
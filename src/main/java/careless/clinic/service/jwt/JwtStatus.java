@@ -0,0 +1,46 @@
+package careless.clinic.service.jwt;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Persisted JWT verification status of an entry's content.
+ *
+ * @param verified  true if the content is a JWT with a valid signature
+ * @param kid       key ID of the key that verified the token, or null
+ * @param keySet    fingerprint of the key set the token was checked against, or null if the
+ *                  content is not a token at all (its status then never depends on the keys)
+ * @param expiresAt expiry from the token's {@code exp} claim, or null; a verified status lapses then
+ * @author jay
+ * @see JwtVerificationService#statusOf(String)
+ */
+public record JwtStatus(boolean verified, String kid, String keySet, Instant expiresAt) {
+
+    /** Status of content that is not JWT-shaped */
+    public static final JwtStatus NOT_A_TOKEN = new JwtStatus(false, null, null, null);
+
+    /**
+     * Renders the status as a SQL value list for
+     * {@code (jwt_verified, jwt_kid, jwt_key_set, jwt_expires_at)}.
+     * <p>
+     * Used by the concatenated inserts in the page controllers. Every value comes from the key
+     * ring or a verified token, never from unverified user input.
+     *
+     * @return comma-separated SQL literals
+     */
+    public String toSqlValues() {
+        return verified + ", " + literal(kid) + ", " + literal(keySet) + ", "
+                + literal(expiresAt != null ? expiresAt.toString() : null);
+    }
+
+    /**
+     * @return {@link #expiresAt} as a JDBC parameter, or null
+     */
+    public Timestamp expiresAtTimestamp() {
+        return expiresAt != null ? Timestamp.from(expiresAt) : null;
+    }
+
+    private static String literal(String value) {
+        return value == null ? "NULL" : "'" + value + "'";
+    }
+}
@@ -0,0 +1,288 @@
+package careless.clinic.service.jwt;
+
+import careless.util.JwtKeyRing;
+import careless.util.JwtVerification;
+import careless.util.Tools;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * JWT verification backed by a bounded cache of results.
+ * <p>
+ * Results are keyed by a SHA-256 digest of the token and stamped with the {@link JwtKeyRing}
+ * generation that produced them, so a key ring change invalidates every cached result.
+ * Valid results never outlive the token's own {@code exp} claim. Hit, miss and eviction
+ * counts are published as {@code cache.*} metrics tagged {@code cache=jwt.verification}.
+ * <p>
+ * {@link #verifyAll} runs cache misses in parallel on virtual threads, capped by a shared
+ * concurrency limit and bounded by a per-call deadline.
+ *
+ * @author jay
+ * @see Tools#verifyJwt(String)
+ */
+@Slf4j
+@Service
+public class JwtVerificationService {
+
+    /** Compact JWS shape: three base64url segments */
+    private static final Pattern JWT_SHAPE = Pattern.compile("^[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+$");
+
+    /** Cached result together with the key ring generation it was computed against */
+    private record CachedVerification(long generation, JwtVerification result) {
+    }
+
+    private final Cache<String, CachedVerification> cache;
+    private final AtomicLong cachedGeneration = new AtomicLong();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final Duration deadline;
+
+    public JwtVerificationService(MeterRegistry meterRegistry,
+                                  @Value("${clinic.jwt.cache.maximum-size:10000}") long maximumSize,
+                                  @Value("${clinic.jwt.cache.ttl:10m}") Duration ttl,
+                                  @Value("${clinic.jwt.verify.concurrency:0}") int concurrency,
+                                  @Value("${clinic.jwt.verify.deadline:2s}") Duration deadline) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ResultExpiry(ttl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verification");
+
+        int limit = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        this.permits = new Semaphore(limit);
+        this.deadline = deadline;
+        log.info("JWT verification configured - cache maximumSize: {}, ttl: {}, concurrency: {}, deadline: {}",
+                maximumSize, ttl, limit, deadline);
+    }
+
+    /**
+     * Stops the verification executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Verifies a JWT signature, serving repeated tokens from the cache.
+     *
+     * @param token JWT token to validate
+     * @return verification result with the matching key ID
+     */
+    public JwtVerification verify(String token) {
+        if (token == null || token.isBlank()) {
+            return JwtVerification.INVALID;
+        }
+
+        String key = digest(token);
+        JwtVerification cached = cachedResult(key);
+        return cached != null ? cached : verifyAndCache(key, token);
+    }
+
+    /**
+     * Computes the status to persist for entry content.
+     *
+     * @param content entry content, may be null
+     * @return {@link JwtStatus#NOT_A_TOKEN} for non-token content, otherwise the verification outcome
+     */
+    public JwtStatus statusOf(String content) {
+        String token = jwtCandidate(content);
+        return token == null ? JwtStatus.NOT_A_TOKEN : statusOf(verify(token));
+    }
+
+    /**
+     * Converts a verification result for a token into the status to persist.
+     *
+     * @param result verification result
+     * @return status stamped with the current key set fingerprint
+     */
+    public JwtStatus statusOf(JwtVerification result) {
+        return new JwtStatus(result.valid(), result.kid(), Tools.getKeyRing().fingerprint(), result.expiresAt());
+    }
+
+    /**
+     * Returns the trimmed content if it appears to be a JWT token.
+     *
+     * @param content entry content, may be null
+     * @return candidate token, or null if the content is not JWT-shaped
+     */
+    public static String jwtCandidate(String content) {
+        if (content == null) {
+            return null;
+        }
+        String trimmed = content.trim();
+        return JWT_SHAPE.matcher(trimmed).matches() ? trimmed : null;
+    }
+
+    /**
+     * Verifies the tokens of many items in parallel and reports each result on the calling thread.
+     * <p>
+     * Cached results are applied immediately; misses run on virtual threads, at most
+     * {@code clinic.jwt.verify.concurrency} at a time across all callers. Items whose verification
+     * has not finished by the {@code clinic.jwt.verify.deadline} are skipped (left unverified).
+     *
+     * @param items    items to verify
+     * @param tokenOf  extracts the token from an item, returning null for items without one
+     * @param onResult receives each item with its verification result
+     * @param <T>      item type
+     */
+    public <T> void verifyAll(Collection<T> items, Function<T, String> tokenOf, BiConsumer<T, JwtVerification> onResult) {
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        List<T> pendingItems = new ArrayList<>();
+        List<Future<JwtVerification>> pending = new ArrayList<>();
+
+        for (T item : items) {
+            String token = tokenOf.apply(item);
+            if (token == null || token.isBlank()) {
+                continue;
+            }
+            String key = digest(token);
+            JwtVerification cached = cachedResult(key);
+            if (cached != null) {
+                onResult.accept(item, cached);
+                continue;
+            }
+            pendingItems.add(item);
+            pending.add(executor.submit(() -> {
+                if (!permits.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new TimeoutException("No verification permit before deadline");
+                }
+                try {
+                    return verifyAndCache(key, token);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        int skipped = 0;
+        for (int i = 0; i < pending.size(); i++) {
+            Future<JwtVerification> future = pending.get(i);
+            try {
+                long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+                onResult.accept(pendingItems.get(i), future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException | ExecutionException e) {
+                future.cancel(true);
+                skipped++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.subList(i, pending.size()).forEach(f -> f.cancel(true));
+                skipped += pending.size() - i;
+                break;
+            }
+        }
+        if (skipped > 0) {
+            log.warn("JWT verification deadline of {} exceeded: {} of {} tokens left unverified", deadline, skipped, pending.size());
+        }
+    }
+
+    /**
+     * Looks up a cached result for the current key ring without computing it.
+     * <p>
+     * Clears the whole cache the first time a new key ring generation is observed.
+     *
+     * @param key token digest
+     * @return cached result, or null on a miss
+     */
+    private JwtVerification cachedResult(String key) {
+        long generation = Tools.getKeyRing().generation();
+        long previous = cachedGeneration.getAndSet(generation);
+        if (previous != 0 && previous != generation) {
+            log.info("JWT key ring changed (generation {} -> {}), clearing verification cache", previous, generation);
+            cache.invalidateAll();
+        }
+
+        CachedVerification cached = cache.getIfPresent(key);
+        return cached != null && cached.generation() == generation ? cached.result() : null;
+    }
+
+    /**
+     * Verifies a token against the key ring and caches the result under its generation.
+     *
+     * @param key   token digest
+     * @param token JWT token
+     * @return verification result
+     */
+    private JwtVerification verifyAndCache(String key, String token) {
+        long generation = Tools.getKeyRing().generation();
+        JwtVerification result = Tools.verifyJwt(token);
+        cache.put(key, new CachedVerification(generation, result));
+        return result;
+    }
+
+    /**
+     * Hashes the token so cache keys stay small regardless of token length.
+     *
+     * @param token JWT token
+     * @return base64 SHA-256 digest
+     */
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Expires entries after the configured TTL, or at the token's {@code exp} if that is sooner.
+     */
+    private static final class ResultExpiry implements Expiry<String, CachedVerification> {
+
+        private final long ttlNanos;
+
+        ResultExpiry(Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, CachedVerification value, long currentTime) {
+            Instant expiresAt = value.result().expiresAt();
+            if (expiresAt == null) {
+                return ttlNanos;
+            }
+            long untilExpiry = Duration.between(Instant.now(), expiresAt).toNanos();
+            return Math.max(0, Math.min(ttlNanos, untilExpiry));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedVerification value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedVerification value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
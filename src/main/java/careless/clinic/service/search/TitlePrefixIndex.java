@@ -0,0 +1,302 @@
+package careless.clinic.service.search;
+
+import careless.clinic.model.EntryDelta;
+import careless.clinic.model.TextEntry;
+import careless.clinic.service.data.CommitWatermark;
+import careless.clinic.service.data.DataService;
+import careless.clinic.service.data.EntryChangeEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index over entry titles and the leading words of their content.
+ * <p>
+ * Terms live in a sorted map, so a prefix lookup is a range scan that never touches the
+ * database. The index is loaded once after startup and then kept current from
+ * {@link EntryChangeEvent}s. All mutations run on a single maintenance thread, in event order;
+ * lookups read the current snapshot without locking.
+ *
+ * @author jay
+ * @see DataService#findIndexSourcesAfter(long, int, int)
+ */
+@Slf4j
+@Service
+public class TitlePrefixIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Upper bound on suggestions returned by one lookup */
+    public static final int MAX_SUGGESTIONS = 50;
+
+    /**
+     * One suggested entry.
+     *
+     * @param id    entry ID
+     * @param label entry title, or the start of its content for untitled entries
+     */
+    public record Suggestion(long id, String label) {
+    }
+
+    /** Indexed entry with the terms it was filed under, so it can be removed again */
+    private record IndexedEntry(String label, Set<String> terms) {
+    }
+
+    /** Index contents; replaced as a whole on reload */
+    private static final class Snapshot {
+        final NavigableMap<String, Set<Long>> terms = new ConcurrentSkipListMap<>();
+        final Map<Long, IndexedEntry> entries = new ConcurrentHashMap<>();
+        /** Entries read so far, including those committed out of ID order; maintenance thread only */
+        final CommitWatermark watermark;
+
+        Snapshot(int maxTracked) {
+            this.watermark = new CommitWatermark("Title prefix index", maxTracked);
+        }
+    }
+
+    private final DataService dataService;
+    private final int contentTokens;
+    private final int contentChars;
+    private final int maxTermLength;
+    private final int labelLength;
+    private final int loadBatchSize;
+
+    private final ExecutorService maintenance = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("title-prefix-index").factory());
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+
+    public TitlePrefixIndex(DataService dataService,
+                            @Value("${clinic.suggest.content-tokens:8}") int contentTokens,
+                            @Value("${clinic.suggest.max-term-length:32}") int maxTermLength,
+                            @Value("${clinic.suggest.label-length:80}") int labelLength,
+                            @Value("${clinic.suggest.load-batch-size:10000}") int loadBatchSize) {
+        this.dataService = dataService;
+        this.contentTokens = contentTokens;
+        this.maxTermLength = maxTermLength;
+        this.labelLength = labelLength;
+        this.loadBatchSize = loadBatchSize;
+        this.snapshot = new Snapshot(loadBatchSize);
+        // Enough characters for the leading tokens and the label of an untitled entry
+        this.contentChars = Math.max(labelLength, contentTokens * (maxTermLength + 1));
+    }
+
+    /**
+     * Schedules the initial load once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        requestReload();
+    }
+
+    /**
+     * Stops the maintenance thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+    }
+
+    /**
+     * Applies an entry change to the index once its transaction has committed.
+     *
+     * @param event change event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChange(EntryChangeEvent event) {
+        if (event.type() == EntryChangeEvent.Type.RESET) {
+            requestReload();
+            return;
+        }
+        maintenance.execute(() -> {
+            try {
+                switch (event.type()) {
+                    case SAVED -> add(snapshot, event.entry());
+                    case DELETED -> remove(snapshot, event.id());
+                    case APPENDED -> catchUp(snapshot);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Error applying {} to title prefix index: {}", event.type(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Finds entries with a title or leading content word starting with the last word of the input.
+     *
+     * @param input text typed so far
+     * @param limit maximum number of suggestions (clamped to 1..{@value #MAX_SUGGESTIONS})
+     * @return matching entries, shortest matching word first
+     */
+    public List<Suggestion> suggest(String input, int limit) {
+        String prefix = lastToken(input);
+        if (prefix == null) {
+            return List.of();
+        }
+        int max = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+
+        Snapshot current = snapshot;
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Set<Long> termIds : current.terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (Long id : termIds) {
+                if (ids.add(id) && ids.size() >= max) {
+                    return toSuggestions(current, ids);
+                }
+            }
+        }
+        return toSuggestions(current, ids);
+    }
+
+    /**
+     * Returns the number of indexed entries.
+     *
+     * @return entry count
+     */
+    public int size() {
+        return snapshot.entries.size();
+    }
+
+    private List<Suggestion> toSuggestions(Snapshot current, Set<Long> ids) {
+        List<Suggestion> suggestions = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            IndexedEntry entry = current.entries.get(id);
+            if (entry != null) {
+                suggestions.add(new Suggestion(id, entry.label()));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Queues a rebuild, coalescing requests that arrive while one is pending.
+     */
+    private void requestReload() {
+        if (reloadPending.compareAndSet(false, true)) {
+            maintenance.execute(() -> {
+                reloadPending.set(false);
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    log.warn("Error reloading title prefix index: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database and swaps it in.
+     */
+    private void reload() {
+        long start = System.nanoTime();
+        Snapshot fresh = new Snapshot(loadBatchSize);
+        catchUp(fresh);
+        snapshot = fresh;
+        log.info("Title prefix index loaded: {} entries, {} terms in {} ms",
+                fresh.entries.size(), fresh.terms.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Indexes all entries the snapshot has not read yet, including rows that committed below
+     * its highest known ID.
+     *
+     * @param target snapshot to fill
+     */
+    private void catchUp(Snapshot target) {
+        EntryDelta<TextEntry> first = null;
+        long after = target.watermark.floor();
+        while (true) {
+            EntryDelta<TextEntry> batch = dataService.findIndexSourcesAfter(after, contentChars, loadBatchSize);
+            if (first == null) {
+                first = batch;
+            }
+            target.watermark.unseen(batch.entries(), TextEntry::getId).forEach(entry -> add(target, entry));
+            if (batch.entries().size() < loadBatchSize) {
+                target.watermark.passComplete(first, batch);
+                return;
+            }
+            after = batch.entries().get(batch.entries().size() - 1).getId();
+        }
+    }
+
+    private void add(Snapshot target, TextEntry entry) {
+        long id = entry.getId();
+        remove(target, id);
+
+        Set<String> terms = new LinkedHashSet<>();
+        addTokens(terms, entry.getTitle(), Integer.MAX_VALUE);
+        addTokens(terms, entry.getContent(), contentTokens);
+        for (String term : terms) {
+            target.terms.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        target.entries.put(id, new IndexedEntry(labelOf(entry), terms));
+    }
+
+    private void remove(Snapshot target, Long id) {
+        IndexedEntry previous = target.entries.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms()) {
+            target.terms.computeIfPresent(term, (t, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private void addTokens(Set<String> terms, String text, int maxTokens) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        int added = 0;
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            terms.add(token.length() > maxTermLength ? token.substring(0, maxTermLength) : token);
+            if (++added >= maxTokens) {
+                return;
+            }
+        }
+    }
+
+    private String labelOf(TextEntry entry) {
+        String label = entry.getTitle() != null && !entry.getTitle().isBlank() ? entry.getTitle() : entry.getContent();
+        if (label == null) {
+            return "";
+        }
+        return label.length() > labelLength ? label.substring(0, labelLength) + "..." : label;
+    }
+
+    private String lastToken(String input) {
+        if (input == null) {
+            return null;
+        }
+        String[] tokens = TOKEN_SEPARATOR.split(input.toLowerCase(Locale.ROOT));
+        for (int i = tokens.length - 1; i >= 0; i--) {
+            if (!tokens[i].isEmpty()) {
+                String token = tokens[i];
+                return token.length() > maxTermLength ? token.substring(0, maxTermLength) : token;
+            }
+        }
+        return null;
+    }
+}
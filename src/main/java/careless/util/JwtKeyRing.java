@@ -0,0 +1,317 @@
+package careless.util;
+
+import careless.clinic.CarelessClinicApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.sec.SECObjectIdentifiers;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable set of pre-parsed JWT verification keys, indexed by key ID and curve.
+ * <p>
+ * Keys are decoded once when the ring is built. Verification reads the JOSE header once and
+ * dispatches the token straight to the keys for its {@code alg} (or its {@code kid}, when known),
+ * so no parser is constructed and no exception is used for control flow per call.
+ *
+ * @author jay
+ * @see Tools#verifyJwt(String)
+ * @see ES256KKeyLoader
+ */
+@Slf4j
+public final class JwtKeyRing {
+
+    /**
+     * Elliptic curves supported by the ring, with their JOSE algorithm and JCA signature names.
+     */
+    public enum Curve {
+        /** NIST P-256, verified by the JDK provider */
+        P256("ES256", "SHA256withECDSAinP1363Format"),
+        /** secp256k1, verified by Bouncy Castle */
+        SECP256K1("ES256K", "SHA256withPLAIN-ECDSA");
+
+        private final String algorithm;
+        private final String signatureAlgorithm;
+
+        Curve(String algorithm, String signatureAlgorithm) {
+            this.algorithm = algorithm;
+            this.signatureAlgorithm = signatureAlgorithm;
+        }
+
+        /**
+         * Resolves the curve for a JOSE {@code alg} header value.
+         *
+         * @param algorithm JOSE algorithm name
+         * @return matching curve, or null if unsupported
+         */
+        static Curve forAlgorithm(String algorithm) {
+            for (Curve curve : values()) {
+                if (curve.algorithm.equals(algorithm)) {
+                    return curve;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Pre-parsed key with the provider that verifies it */
+    private record RingKey(String kid, Curve curve, PublicKey publicKey, Provider provider) {
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final long generation;
+    private final String fingerprint;
+    private final Map<String, RingKey> byKid;
+    private final Map<Curve, List<RingKey>> byCurve;
+
+    private JwtKeyRing(List<RingKey> keys) {
+        this.generation = GENERATIONS.incrementAndGet();
+        this.fingerprint = fingerprint(keys);
+        Map<String, RingKey> kids = new LinkedHashMap<>();
+        Map<Curve, List<RingKey>> curves = new EnumMap<>(Curve.class);
+        for (RingKey key : keys) {
+            kids.put(key.kid(), key);
+            curves.computeIfAbsent(key.curve(), c -> new ArrayList<>()).add(key);
+        }
+        curves.replaceAll((curve, list) -> List.copyOf(list));
+        this.byKid = Map.copyOf(kids);
+        this.byCurve = curves;
+    }
+
+    /**
+     * Builds a key ring from PEM-encoded SPKI public keys.
+     *
+     * @param pemByKid PEM public keys keyed by key ID, in lookup order
+     * @return new key ring
+     * @throws IllegalArgumentException if a key cannot be parsed or uses an unsupported curve
+     */
+    public static JwtKeyRing fromPem(Map<String, String> pemByKid) {
+        Provider bouncyCastle = CarelessClinicApplication.securityProvider != null
+                ? CarelessClinicApplication.securityProvider
+                : CarelessClinicApplication.getBouncyCastleProvider();
+        List<RingKey> keys = new ArrayList<>();
+        pemByKid.forEach((kid, pem) -> keys.add(loadKey(kid, pem, bouncyCastle)));
+        JwtKeyRing ring = new JwtKeyRing(keys);
+        log.info("JWT key ring generation {} loaded with keys {} (fingerprint {})",
+                ring.generation, ring.byKid.keySet(), ring.fingerprint);
+        return ring;
+    }
+
+    /**
+     * Returns the generation number of this ring; every newly built ring gets a higher one.
+     *
+     * @return ring generation
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Returns a stable fingerprint of the key set, identical for rings built from the same keys.
+     * <p>
+     * Unlike {@link #generation()}, the fingerprint survives restarts, so it can be persisted
+     * alongside verification results to detect key set changes later.
+     *
+     * @return hex fingerprint of the key IDs and key material
+     */
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Verifies a compact JWS token against the key(s) matching its header.
+     * <p>
+     * Expired ({@code exp}) or not-yet-valid ({@code nbf}) tokens are rejected, and the claims
+     * object must be JSON.
+     *
+     * @param token compact JWT
+     * @return verification result naming the matching key
+     */
+    public JwtVerification verify(String token) {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            return JwtVerification.INVALID;
+        }
+
+        JsonNode header = decodeJson(token.substring(0, headerEnd));
+        if (header == null) {
+            log.debug("JWT header is not a JSON object");
+            return JwtVerification.INVALID;
+        }
+        Curve curve = Curve.forAlgorithm(header.path("alg").asText(null));
+        if (curve == null) {
+            log.debug("Unsupported JWT algorithm: {}", header.path("alg").asText(null));
+            return JwtVerification.INVALID;
+        }
+
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(payloadEnd + 1));
+        } catch (IllegalArgumentException e) {
+            return JwtVerification.INVALID;
+        }
+        byte[] signingInput = token.substring(0, payloadEnd).getBytes(StandardCharsets.US_ASCII);
+
+        for (RingKey key : candidates(header.path("kid").asText(null), curve)) {
+            if (verifySignature(key, signingInput, signature)) {
+                JsonNode claims = decodeJson(token.substring(headerEnd + 1, payloadEnd));
+                if (claims == null || !claimsCurrent(claims)) {
+                    log.debug("JWT signature valid with {} but token is expired or not yet valid", key.kid());
+                    return JwtVerification.INVALID;
+                }
+                JsonNode exp = claims.get("exp");
+                return JwtVerification.validWith(key.kid(),
+                        exp != null && exp.isNumber() ? Instant.ofEpochSecond(exp.asLong()) : null);
+            }
+        }
+        return JwtVerification.INVALID;
+    }
+
+    /**
+     * Selects the keys to try: the key named by {@code kid} if known, otherwise all keys on the curve.
+     *
+     * @param kid   key ID from the header, may be null
+     * @param curve curve implied by the header algorithm
+     * @return candidate keys
+     */
+    private List<RingKey> candidates(String kid, Curve curve) {
+        if (kid != null) {
+            RingKey key = byKid.get(kid);
+            if (key != null) {
+                return key.curve() == curve ? List.of(key) : List.of();
+            }
+        }
+        return byCurve.getOrDefault(curve, List.of());
+    }
+
+    /**
+     * Checks a raw (R || S) ECDSA signature.
+     *
+     * @param key          key to verify with
+     * @param signingInput ASCII bytes of {@code header.payload}
+     * @param signature    decoded signature
+     * @return true if the signature is valid for the key
+     */
+    private static boolean verifySignature(RingKey key, byte[] signingInput, byte[] signature) {
+        if (signature.length != 64) {
+            return false;
+        }
+        try {
+            Signature verifier = Signature.getInstance(key.curve().signatureAlgorithm, key.provider());
+            verifier.initVerify(key.publicKey());
+            verifier.update(signingInput);
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException e) {
+            log.debug("JWT signature check with {} failed: {}", key.kid(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Checks that the claims are within their {@code nbf}/{@code exp} window.
+     *
+     * @param claims decoded claims object
+     * @return true if the claims are currently valid
+     */
+    private static boolean claimsCurrent(JsonNode claims) {
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        JsonNode exp = claims.get("exp");
+        if (exp != null && exp.isNumber() && nowSeconds >= exp.asLong()) {
+            return false;
+        }
+        JsonNode nbf = claims.get("nbf");
+        return nbf == null || !nbf.isNumber() || nowSeconds >= nbf.asLong();
+    }
+
+    /**
+     * Decodes a base64url JSON object segment.
+     *
+     * @param segment base64url-encoded segment
+     * @return parsed object, or null if the segment is not a JSON object
+     */
+    private static JsonNode decodeJson(String segment) {
+        try {
+            JsonNode node = MAPPER.readTree(Base64.getUrlDecoder().decode(segment));
+            return node != null && node.isObject() ? node : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hashes the key IDs and encoded keys, in key ID order.
+     *
+     * @param keys ring keys
+     * @return first 16 hex characters of the SHA-256 digest
+     */
+    private static String fingerprint(List<RingKey> keys) {
+        Map<String, RingKey> sorted = new TreeMap<>();
+        keys.forEach(key -> sorted.put(key.kid(), key));
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            for (RingKey key : sorted.values()) {
+                sha256.update(key.kid().getBytes(StandardCharsets.UTF_8));
+                sha256.update(key.publicKey().getEncoded());
+            }
+            return HexFormat.of().formatHex(sha256.digest(), 0, 8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Parses a PEM public key and determines its curve from the SPKI algorithm parameters.
+     *
+     * @param kid          key ID
+     * @param pem          PEM-encoded SPKI public key
+     * @param bouncyCastle Bouncy Castle provider for secp256k1 keys
+     * @return parsed ring key
+     */
+    private static RingKey loadKey(String kid, String pem, Provider bouncyCastle) {
+        byte[] spki = Base64.getDecoder().decode(pem
+                .replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", "")
+                .replaceAll("\\s", ""));
+        try {
+            ASN1Encodable curveId = SubjectPublicKeyInfo.getInstance(spki).getAlgorithm().getParameters();
+            if (X9ObjectIdentifiers.prime256v1.equals(curveId)) {
+                PublicKey publicKey = KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(spki));
+                Provider provider = Signature.getInstance(Curve.P256.signatureAlgorithm).getProvider();
+                return new RingKey(kid, Curve.P256, publicKey, provider);
+            }
+            if (SECObjectIdentifiers.secp256k1.equals(curveId)) {
+                PublicKey publicKey = new ES256KKeyLoader().loadPublicKeyFromSPKIBouncy(spki);
+                return new RingKey(kid, Curve.SECP256K1, publicKey, bouncyCastle);
+            }
+            throw new IllegalArgumentException("Unsupported curve " + curveId + " for key " + kid);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot load public key " + kid, e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package careless.util;
+
+import java.time.Instant;
+
+/**
+ * Outcome of verifying a JWT signature against the {@link JwtKeyRing}.
+ *
+ * @param valid     true if the signature (and time claims) checked out
+ * @param kid       key ID of the key that verified the token, or null if invalid
+ * @param expiresAt expiry from the {@code exp} claim of a valid token, or null if none
+ * @author jay
+ */
+public record JwtVerification(boolean valid, String kid, Instant expiresAt) {
+
+    /** Shared result for tokens that failed verification */
+    public static final JwtVerification INVALID = new JwtVerification(false, null, null);
+
+    /**
+     * Builds a successful result.
+     *
+     * @param kid       key ID of the matching key
+     * @param expiresAt token expiry, may be null
+     * @return valid verification result
+     */
+    public static JwtVerification validWith(String kid, Instant expiresAt) {
+        return new JwtVerification(true, kid, expiresAt);
+    }
+}
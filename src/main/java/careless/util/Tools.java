@@ -1,22 +1,14 @@
 package careless.util;
 
-import careless.clinic.CarelessClinicApplication;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.SignatureException;
 import lombok.extern.slf4j.Slf4j;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.security.KeyFactory;
-import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Utility class providing helper methods for exception handling, timestamps, and JWT validation.
@@ -47,6 +39,10 @@ public class Tools {
             MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAEdYCSYzUHlSjrjT8ZwHCs54M07C9FvU315fz5Ha/pR2ij89LRm+XMVXBwzpLL4XtspW4GhQA24hNiDdCYa2FV5g==
             -----END PUBLIC KEY-----
             """;
+    /**
+     * Key ring built once from the public keys above; replaced only via {@link #setKeyRing(JwtKeyRing)}
+     */
+    private static volatile JwtKeyRing keyRing = JwtKeyRing.fromPem(defaultKeys());
     /**
      * Date-time formatter for timestamps
      */
@@ -74,112 +70,64 @@ public class Tools {
     }
 
     /**
-     * Validates JWT token signature against both public keys.
+     * Validates JWT token signature against the key ring.
      * <p>
-     * Returns true if signature is valid with either {@link #PUBLIC_KEY} or {@link #JAY_PUBLIC_KEY}.
+     * Returns true if signature is valid with {@link #PUBLIC_KEY} or {@link #JAY_PUBLIC_KEY}.
      *
      * @param token JWT token to validate
      * @return true if signature is valid, false otherwise
      */
     public static boolean validateJwtSignature(String token) {
-        if (token == null || token.isBlank()) {
-            return false;
-        }
+        return verifyJwt(token).valid();
+    }
 
-        // Try validation with first public key
-        if (validateJwtWithKey(token, PUBLIC_KEY)) {
-            log.info("JWT validated with PUBLIC_KEY");
-            return true;
+    /**
+     * Verifies JWT token signature against the key ring, reporting which key matched.
+     *
+     * @param token JWT token to validate
+     * @return verification result with the matching key ID
+     */
+    public static JwtVerification verifyJwt(String token) {
+        if (token == null || token.isBlank()) {
+            return JwtVerification.INVALID;
         }
 
-        // Try validation with second public key
-        if (validateJwtWithKey(token, JAY_PUBLIC_KEY)) {
-            log.info("JWT validated with JAY_PUBLIC_KEY");
-            return true;
+        JwtVerification result = keyRing.verify(token);
+        if (result.valid()) {
+            log.debug("JWT validated with {}", result.kid());
+        } else {
+            log.debug("JWT signature validation failed against key ring generation {}", keyRing.generation());
         }
-
-        log.warn("JWT signature validation failed with both keys");
-        return false;
+        return result;
     }
 
     /**
-     * Validates JWT token with specific public key.
+     * Returns the current JWT key ring.
      *
-     * @param token        JWT token
-     * @param publicKeyPem PEM-encoded public key
-     * @return true if valid, false otherwise
+     * @return active key ring
      */
-    private static boolean validateJwtWithKey(String token, String publicKeyPem) {
-        try {
-            PublicKey publicKey = loadPublicKey(publicKeyPem);
-
-            // Parse and validate the JWT
-            Jwts.parser()
-                    .verifyWith(publicKey)
-                    .build()
-                    .parseSignedClaims(token);
-
-            return true;
-        } catch (SignatureException e) {
-            boolean tryK1 = validateJwtWithSecp256k1Key(token, publicKeyPem);
-            if (tryK1) {
-                return true;
-            }
-            log.debug("Signature validation failed: {}", e.getMessage());
-            return false;
-        } catch (Exception e) {
-            log.debug("JWT validation error: {}", e.getMessage());
-            return false;
-        }
+    public static JwtKeyRing getKeyRing() {
+        return keyRing;
     }
 
-    private static boolean validateJwtWithSecp256k1Key(String jwt, String publicKeyString) {
-        boolean result = false;
-        String publicKeyContent = publicKeyString
-                .replace("-----BEGIN PUBLIC KEY-----", "")
-                .replace("-----END PUBLIC KEY-----", "")
-                .replaceAll("\\s", "");
-
-        byte[] pubKeyBytes = Base64.getDecoder().decode(publicKeyContent);
-
-        try {
-
-            PublicKey publicKey = new ES256KKeyLoader().loadPublicKeyFromSPKIBouncy(pubKeyBytes);
-
-            // Now, verify the token
-            Jws<Claims> claims = Jwts.parser()
-                    .provider(CarelessClinicApplication.securityProvider)
-                    .verifyWith(publicKey)
-                    .build()
-                    .parseSignedClaims(jwt);
-
-            if (claims != null) {
-                System.out.println("JWT is valid. Claims: " + claims.toString());
-                result = true;
-            }
-
-        } catch (Exception e) {
-            log.warn("JWT validation error", e);
-        }
-        return result;
+    /**
+     * Replaces the JWT key ring (e.g. after a key rotation).
+     *
+     * @param ring new key ring
+     */
+    public static void setKeyRing(JwtKeyRing ring) {
+        keyRing = ring;
     }
 
     /**
-     * Loads public key from PEM string.
+     * Builds the default key material, keyed by the constant name used as key ID.
      *
-     * @param publicKeyPem PEM-encoded public key
-     * @return loaded public key
-     * @throws Exception if key loading fails
+     * @return PEM public keys in lookup order
      */
-    private static PublicKey loadPublicKey(String publicKeyPem) throws Exception {
-        String publicKeyContent = publicKeyPem
-                .replace("-----BEGIN PUBLIC KEY-----", "")
-                .replace("-----END PUBLIC KEY-----", "")
-                .replaceAll("\\s", "");
-
-        byte[] keyBytes = Base64.getDecoder().decode(publicKeyContent);
-        X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-        KeyFactory keyFactory = KeyFactory.getInstance("EC"); // ES256 uses Elliptic Curve
-        return keyFactory.generatePublic(spec);
+    private static Map<String, String> defaultKeys() {
+        Map<String, String> keys = new LinkedHashMap<>();
+        keys.put("PUBLIC_KEY", PUBLIC_KEY);
+        keys.put("JAY_PUBLIC_KEY", JAY_PUBLIC_KEY);
+        return keys;
     }
 }
@@ -0,0 +1,10 @@
+-- Baseline text_entries table.
+-- IF NOT EXISTS keeps this safe on databases where Hibernate or the old
+-- per-request controller DDL already created the table.
+CREATE TABLE IF NOT EXISTS text_entries (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title      VARCHAR(1255),
+    content    VARCHAR(12032),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,6 @@
+-- Persisted JWT verification status (see JwtReverificationJob).
+-- NULL jwt_verified means the row has not been checked yet.
+ALTER TABLE text_entries
+    ADD COLUMN IF NOT EXISTS jwt_verified BOOLEAN,
+    ADD COLUMN IF NOT EXISTS jwt_kid      VARCHAR(64),
+    ADD COLUMN IF NOT EXISTS jwt_key_set  VARCHAR(32);
@@ -0,0 +1,14 @@
+-- Keyset pagination: ORDER BY created_at DESC, id DESC with (created_at, id) row comparisons
+CREATE INDEX IF NOT EXISTS idx_text_entries_created_at_id ON text_entries (created_at DESC, id DESC);
+
+-- Substring searches (LIKE / ILIKE '%term%') on title and content
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_text_entries_title_trgm ON text_entries USING gin (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_text_entries_content_trgm ON text_entries USING gin (content gin_trgm_ops);
+
+-- Time range scans (findByCreatedAtBetween); rows are appended in created_at order
+CREATE INDEX IF NOT EXISTS idx_text_entries_created_at_brin ON text_entries USING brin (created_at);
+
+-- JWT status maintenance: pending rows, and token rows checked against a given key set
+CREATE INDEX IF NOT EXISTS idx_text_entries_jwt_pending ON text_entries (id) WHERE jwt_verified IS NULL;
+CREATE INDEX IF NOT EXISTS idx_text_entries_jwt_key_set ON text_entries (jwt_key_set) WHERE jwt_key_set IS NOT NULL;
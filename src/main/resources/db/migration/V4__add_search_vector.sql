@@ -0,0 +1,11 @@
+-- Full-text search document for ranked search (DataService#searchRanked).
+-- 'simple' config: lab content is mixed-language payloads, so no stemming or stop words.
+-- Title terms are weighted above content terms.
+ALTER TABLE text_entries
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+        GENERATED ALWAYS AS (
+            setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+            setweight(to_tsvector('simple', coalesce(content, '')), 'B')
+        ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_text_entries_search_vector ON text_entries USING gin (search_vector);
@@ -0,0 +1,7 @@
+-- Expiry (exp claim) of a verified JWT, so a stored verified status lapses with the token.
+-- NULL for rows that are not verified tokens or whose token has no exp claim.
+ALTER TABLE text_entries
+    ADD COLUMN IF NOT EXISTS jwt_expires_at TIMESTAMPTZ;
+
+-- JwtReverificationJob sweep of verified rows past their expiry
+CREATE INDEX IF NOT EXISTS idx_text_entries_jwt_expires_at ON text_entries (jwt_expires_at) WHERE jwt_verified;
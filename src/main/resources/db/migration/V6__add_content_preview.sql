@@ -0,0 +1,6 @@
+-- Listing preview and length of content that may be stored compressed (ContentCodec), so
+-- listings, the prefix index and search snippets never read a compressed value.
+-- NULL for content that is always stored plain; listings cut plain content in SQL.
+ALTER TABLE text_entries
+    ADD COLUMN IF NOT EXISTS content_preview VARCHAR(200),
+    ADD COLUMN IF NOT EXISTS content_length  INTEGER;
@@ -0,0 +1,99 @@
+package careless.clinic.service.data;
+
+import careless.clinic.model.EntryDelta;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link CommitWatermark}.
+ *
+ * @author jay
+ */
+class CommitWatermarkTest {
+
+    private static EntryDelta<Long> read(long xmin, long xmax, Long... ids) {
+        return new EntryDelta<>(List.of(ids), xmin, xmax);
+    }
+
+    private static List<Long> pass(CommitWatermark watermark, EntryDelta<Long> delta) {
+        List<Long> fresh = watermark.unseen(delta.entries(), Long::longValue);
+        watermark.passComplete(delta, delta);
+        return fresh;
+    }
+
+    @Test
+    void handsOutEachIdOnce() {
+        CommitWatermark watermark = new CommitWatermark("test", 100);
+        watermark.reset(10);
+
+        assertThat(pass(watermark, read(5, 6, 11L, 12L))).containsExactly(11L, 12L);
+        assertThat(pass(watermark, read(5, 7, 11L, 12L, 13L))).containsExactly(13L);
+        assertThat(watermark.highest()).isEqualTo(13);
+    }
+
+    @Test
+    void catchesRowsCommittedBelowTheHighestId() {
+        CommitWatermark watermark = new CommitWatermark("test", 100);
+        watermark.reset(99);
+
+        // 601 commits while the transaction holding 100-102 (xid 15) is still open
+        assertThat(pass(watermark, read(15, 20, 601L))).containsExactly(601L);
+        assertThat(watermark.floor()).isEqualTo(99);
+
+        assertThat(pass(watermark, read(20, 21, 100L, 101L, 102L, 601L))).containsExactly(100L, 101L, 102L);
+        assertThat(watermark.highest()).isEqualTo(601);
+    }
+
+    @Test
+    void raisesTheFloorOnceOlderTransactionsHaveFinished() {
+        CommitWatermark watermark = new CommitWatermark("test", 100);
+        watermark.reset(0);
+
+        pass(watermark, read(15, 20, 1L, 3L));
+        assertThat(watermark.floor()).isZero();
+        assertThat(watermark.isSeen(2)).isFalse();
+
+        // Transaction 19 is still running: 2 may yet commit
+        pass(watermark, read(19, 22, 1L, 3L));
+        assertThat(watermark.floor()).isZero();
+
+        pass(watermark, read(20, 22, 1L, 3L));
+        assertThat(watermark.floor()).isEqualTo(3);
+        assertThat(watermark.tracked()).isZero();
+        assertThat(watermark.isSeen(2)).isTrue();
+    }
+
+    @Test
+    void settlesMultiReadPassesFromTheFirstSnapshot() {
+        CommitWatermark watermark = new CommitWatermark("test", 100);
+        watermark.reset(0);
+        pass(watermark, read(15, 20, 1L, 2L));
+
+        EntryDelta<Long> first = read(19, 24, 1L, 2L, 3L);
+        EntryDelta<Long> last = read(30, 31, 4L);
+        watermark.unseen(first.entries(), Long::longValue);
+        watermark.unseen(last.entries(), Long::longValue);
+        watermark.passComplete(first, last);
+        assertThat(watermark.floor()).isZero();
+
+        pass(watermark, read(20, 31, 1L, 2L, 3L, 4L));
+        assertThat(watermark.floor()).isEqualTo(2);
+
+        pass(watermark, read(31, 32, 3L, 4L));
+        assertThat(watermark.floor()).isEqualTo(4);
+    }
+
+    @Test
+    void givesUpOnLateRowsPastTheTrackingLimit() {
+        CommitWatermark watermark = new CommitWatermark("test", 2);
+        watermark.reset(0);
+
+        pass(watermark, read(1, 10, 1L, 2L, 3L));
+        assertThat(watermark.floor()).isEqualTo(3);
+        assertThat(watermark.tracked()).isZero();
+        assertThat(pass(watermark, read(1, 10, 4L))).containsExactly(4L);
+    }
+}
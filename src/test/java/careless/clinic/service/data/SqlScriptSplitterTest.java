@@ -0,0 +1,120 @@
+package careless.clinic.service.data;
+
+import careless.clinic.service.data.SqlScriptSplitter.Statement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link SqlScriptSplitter}.
+ *
+ * @author jay
+ */
+class SqlScriptSplitterTest {
+
+    private static List<String> sql(String script) {
+        return SqlScriptSplitter.split(script).stream().map(Statement::sql).toList();
+    }
+
+    @Test
+    void splitsAtTopLevelSemicolons() {
+        assertThat(sql("INSERT INTO t VALUES (1); DELETE FROM t ;\n UPDATE t SET a = 2"))
+                .containsExactly("INSERT INTO t VALUES (1)", "DELETE FROM t", "UPDATE t SET a = 2");
+    }
+
+    @Test
+    void dropsEmptyAndCommentOnlyStatements() {
+        assertThat(sql(";; DELETE FROM t; -- trailing note\n; /* nothing */ ;")).containsExactly("DELETE FROM t");
+        assertThat(sql("  \n-- only a comment\n")).isEmpty();
+    }
+
+    @Test
+    void keepsSemicolonsInStringLiterals() {
+        assertThat(sql("INSERT INTO t VALUES ('a;b', 'it''s;'); DELETE FROM t"))
+                .containsExactly("INSERT INTO t VALUES ('a;b', 'it''s;')", "DELETE FROM t");
+    }
+
+    @Test
+    void treatsBackslashAsLiteralInStandardStrings() {
+        // standard_conforming_strings: the backslash does not escape, so the literal ends at the quote
+        assertThat(sql("SELECT 'a\\'; SELECT 2")).containsExactly("SELECT 'a\\'", "SELECT 2");
+    }
+
+    @Test
+    void honoursBackslashEscapesInEscapeStrings() {
+        assertThat(sql("SELECT E'a\\';b'; SELECT e'\\\\'; SELECT 3"))
+                .containsExactly("SELECT E'a\\';b'", "SELECT e'\\\\'", "SELECT 3");
+    }
+
+    @Test
+    void onlyALoneEPrefixMakesAnEscapeString() {
+        // A keyword ending in E (or a space before the quote) is not an escape-string prefix
+        assertThat(sql("SELECT DATE'2024-01-01\\'; SELECT E '\\'; SELECT 4"))
+                .containsExactly("SELECT DATE'2024-01-01\\'", "SELECT E '\\'", "SELECT 4");
+    }
+
+    @Test
+    void keepsSemicolonsInQuotedIdentifiers() {
+        assertThat(sql("SELECT \"a;\"\"b\" FROM t; SELECT 2")).containsExactly("SELECT \"a;\"\"b\" FROM t", "SELECT 2");
+    }
+
+    @Test
+    void keepsSemicolonsInDollarQuotedBodies() {
+        String function = "CREATE FUNCTION f() RETURNS int AS $$ BEGIN RETURN 1; END; $$ LANGUAGE plpgsql";
+        String tagged = "DO $body$ BEGIN PERFORM '$$;'; END $body$";
+        assertThat(sql(function + "; " + tagged + "; SELECT 3")).containsExactly(function, tagged, "SELECT 3");
+    }
+
+    @Test
+    void doesNotTreatParametersOrIdentifierDollarsAsQuotes() {
+        assertThat(sql("PREPARE p AS SELECT $1; SELECT a$b$ FROM t; SELECT 3"))
+                .containsExactly("PREPARE p AS SELECT $1", "SELECT a$b$ FROM t", "SELECT 3");
+    }
+
+    @Test
+    void keepsSemicolonsInComments() {
+        assertThat(sql("DELETE FROM t -- not; the end\nWHERE a = 1; SELECT 2"))
+                .containsExactly("DELETE FROM t -- not; the end\nWHERE a = 1", "SELECT 2");
+    }
+
+    @Test
+    void skipsNestedBlockComments() {
+        assertThat(sql("DELETE /* outer /* inner; */ still; comment */ FROM t; SELECT 2"))
+                .containsExactly("DELETE /* outer /* inner; */ still; comment */ FROM t", "SELECT 2");
+    }
+
+    @Test
+    void keepsUnterminatedTrailingConstructs() {
+        assertThat(sql("SELECT 1; SELECT 'open; string")).containsExactly("SELECT 1", "SELECT 'open; string");
+        assertThat(sql("SELECT 1; SELECT $$open; body")).containsExactly("SELECT 1", "SELECT $$open; body");
+    }
+
+    @Test
+    void flagsStatementsThatReturnRows() {
+        List<Statement> statements = SqlScriptSplitter.split(
+                "select 1; WITH x AS (SELECT 1) SELECT * FROM x; VALUES (1); SHOW work_mem; "
+                        + "INSERT INTO t VALUES (1); UPDATE t SET a = 1; CREATE TABLE u (a int)");
+        assertThat(statements).extracting(Statement::returnsRows)
+                .containsExactly(true, true, true, true, false, false, false);
+    }
+
+    @Test
+    void flagsReturningClauses() {
+        List<Statement> statements = SqlScriptSplitter.split(
+                "INSERT INTO t VALUES (1) RETURNING id; "
+                        + "DELETE FROM t WHERE a = 'returning'; "
+                        + "UPDATE t SET returning_count = 1; "
+                        + "UPDATE t SET \"returning\" = 1; "
+                        + "UPDATE t SET a = 1 /* returning */ -- returning\n");
+        assertThat(statements).extracting(Statement::returnsRows)
+                .containsExactly(true, false, false, false, false);
+    }
+
+    @Test
+    void leadingCommentsDoNotHideTheFirstKeyword() {
+        List<Statement> statements = SqlScriptSplitter.split("/* report */ -- daily\nSELECT 1; -- purge\nDELETE FROM t");
+        assertThat(statements).extracting(Statement::returnsRows).containsExactly(true, false);
+    }
+}